@@ -0,0 +1,192 @@
+package com.github.hypfvieh;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.BluezObjectSnapshot.DeviceSnapshot;
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+
+/**
+ * Assigns devices to bluetooth adapters when more than one adapter can see the same device.
+ * <br>
+ * Each device is assigned to the adapter with the best score, where the score is the signal strength (RSSI)
+ * reduced by {@link #getLoadPenalty()} dBm for every device already assigned to that adapter.
+ * Assignments are sticky: a device stays on its adapter as long as the adapter still sees it,
+ * so balancing never causes needless reconnects.
+ *
+ * @author David M.
+ */
+public class AdapterBalancer {
+    public static final int DEFAULT_LOAD_PENALTY = 10;
+
+    /** RSSI used for devices without a recent signal strength reading. */
+    private static final int RSSI_UNKNOWN = -100;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** Source of the signal strength of all devices */
+    private final BluezObjectSnapshot objectSnapshot;
+
+    /** Map of device MAC address -> adapter object path */
+    private final Map<String, String> assignments = new HashMap<>();
+
+    private volatile int loadPenalty = DEFAULT_LOAD_PENALTY;
+
+    AdapterBalancer(BluezObjectSnapshot _objectSnapshot) {
+        objectSnapshot = _objectSnapshot;
+    }
+
+    /**
+     * Selects the adapter to use for each device.
+     *
+     * @param _candidates map of device MAC address / device objects of all adapters which see the device
+     * @return one device object per MAC address (in order of the given map)
+     */
+    public synchronized List<BluetoothDevice> assign(Map<String, List<BluetoothDevice>> _candidates) {
+        assignments.keySet().retainAll(_candidates.keySet());
+
+        Map<String, BluetoothDevice> selected = new LinkedHashMap<>();
+        List<Entry<String, List<BluetoothDevice>>> unassigned = new ArrayList<>();
+        for (Entry<String, List<BluetoothDevice>> entry : _candidates.entrySet()) {
+            selected.put(entry.getKey(), null); // keep order
+            BluetoothDevice current = findOnAdapter(entry.getValue(), assignments.get(entry.getKey()));
+            if (current != null) {
+                selected.put(entry.getKey(), current);
+            } else {
+                assignments.remove(entry.getKey());
+                unassigned.add(entry);
+            }
+        }
+
+        Map<String, Integer> load = getLoad();
+        // devices with fewer choices first, so devices seen by many adapters fill up the remaining capacity
+        unassigned.sort(Comparator.comparingInt(e -> e.getValue().size()));
+        for (Entry<String, List<BluetoothDevice>> choices : unassigned) {
+            BluetoothDevice best = null;
+            int bestScore = Integer.MIN_VALUE;
+            for (BluetoothDevice device : choices.getValue()) {
+                int score = getRssi(device) - load.getOrDefault(ConnectionManager.getAdapterPath(device), 0) * loadPenalty;
+                if (best == null || score > bestScore) {
+                    best = device;
+                    bestScore = score;
+                }
+            }
+            if (best == null) {
+                continue;
+            }
+            String adapter = ConnectionManager.getAdapterPath(best);
+            assignments.put(choices.getKey(), adapter);
+            load.merge(adapter, 1, Integer::sum);
+            selected.put(choices.getKey(), best);
+            logger.debug("Assigned device {} to adapter {} (score {})", choices.getKey(), adapter, bestScore);
+        }
+
+        List<BluetoothDevice> result = new ArrayList<>();
+        for (BluetoothDevice device : selected.values()) {
+            if (device != null) {
+                result.add(device);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops all assignments of the given adapter.
+     *
+     * @param _adapterPath object path of the removed adapter (e.g. /org/bluez/hci1)
+     * @return MAC addresses of the devices which were assigned to that adapter
+     */
+    public synchronized List<String> adapterRemoved(String _adapterPath) {
+        List<String> orphaned = new ArrayList<>();
+        for (Entry<String, String> entry : assignments.entrySet()) {
+            if (entry.getValue().equals(_adapterPath)) {
+                orphaned.add(entry.getKey());
+            }
+        }
+        assignments.keySet().removeAll(orphaned);
+        return orphaned;
+    }
+
+    /**
+     * Drops the assignment of a device.
+     *
+     * @param _macAddr device MAC address
+     */
+    public synchronized void deviceRemoved(String _macAddr) {
+        assignments.remove(_macAddr);
+    }
+
+    /**
+     * Object path of the adapter the given device is assigned to.
+     *
+     * @param _macAddr device MAC address
+     * @return adapter path or null if device is not assigned
+     */
+    public synchronized String getAssignedAdapter(String _macAddr) {
+        return assignments.get(_macAddr);
+    }
+
+    /**
+     * Number of devices assigned to each adapter.
+     *
+     * @return map of adapter object path / device count
+     */
+    public synchronized Map<String, Integer> getLoad() {
+        Map<String, Integer> load = new HashMap<>();
+        for (String adapter : assignments.values()) {
+            load.merge(adapter, 1, Integer::sum);
+        }
+        return load;
+    }
+
+    /**
+     * Setup how many dBm of signal strength an additional device on an adapter is worth.
+     * Higher values spread devices more evenly, lower values prefer the adapter with the best signal.
+     *
+     * @param _loadPenalty penalty per assigned device, at least 0
+     */
+    public void setLoadPenalty(int _loadPenalty) {
+        loadPenalty = Math.max(0, _loadPenalty);
+    }
+
+    /**
+     * Signal strength penalty per device already assigned to an adapter.
+     *
+     * @return int
+     */
+    public int getLoadPenalty() {
+        return loadPenalty;
+    }
+
+    private static BluetoothDevice findOnAdapter(List<BluetoothDevice> _devices, String _adapterPath) {
+        if (_adapterPath == null) {
+            return null;
+        }
+        for (BluetoothDevice device : _devices) {
+            if (_adapterPath.equals(ConnectionManager.getAdapterPath(device))) {
+                return device;
+            }
+        }
+        return null;
+    }
+
+    private int getRssi(BluetoothDevice _device) {
+        DeviceSnapshot snapshot = objectSnapshot.getDevice(_device.getDbusPath());
+        Short rssi = snapshot == null ? null : snapshot.getRssi();
+        return rssi == null ? RSSI_UNKNOWN : rssi;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [load=" + getLoad() + "]";
+    }
+}
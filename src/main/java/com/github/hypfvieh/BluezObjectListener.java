@@ -0,0 +1,42 @@
+package com.github.hypfvieh;
+
+import java.util.Collection;
+
+/**
+ * Listener which is called when bluez announces changes of its object tree.
+ * <br>
+ * Listeners are called by {@link BluezObjectSnapshot} after the change was applied to the snapshot.
+ * This is called from the D-Bus signal thread, so implementations should return quickly.
+ *
+ * @author David M.
+ */
+public interface BluezObjectListener {
+
+    /**
+     * Called when interfaces were added to an object (e.g. a device was found).
+     *
+     * @param _path object path
+     * @param _interfaces names of the added interfaces
+     */
+    default void interfacesAdded(String _path, Collection<String> _interfaces) {
+    }
+
+    /**
+     * Called when interfaces were removed from an object (e.g. a device or adapter was removed).
+     *
+     * @param _path object path
+     * @param _interfaces names of the removed interfaces
+     */
+    default void interfacesRemoved(String _path, Collection<String> _interfaces) {
+    }
+
+    /**
+     * Called when properties of an interface have changed.
+     *
+     * @param _path object path
+     * @param _interface interface name
+     * @param _properties names of the changed properties
+     */
+    default void propertiesChanged(String _path, String _interface, Collection<String> _properties) {
+    }
+}
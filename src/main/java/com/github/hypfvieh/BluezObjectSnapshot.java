@@ -0,0 +1,511 @@
+package com.github.hypfvieh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.freedesktop.dbus.DBusPath;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.handlers.AbstractInterfacesAddedHandler;
+import org.freedesktop.dbus.handlers.AbstractInterfacesRemovedHandler;
+import org.freedesktop.dbus.handlers.AbstractPropertiesChangedHandler;
+import org.freedesktop.dbus.interfaces.ObjectManager;
+import org.freedesktop.dbus.interfaces.ObjectManager.InterfacesAdded;
+import org.freedesktop.dbus.interfaces.ObjectManager.InterfacesRemoved;
+import org.freedesktop.dbus.interfaces.Properties.PropertiesChanged;
+import org.freedesktop.dbus.types.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.util.TimeMeasure;
+
+/**
+ * Local copy of the properties of all bluez objects.
+ * <br>
+ * The whole object tree is fetched with a single GetManagedObjects call and kept up to date by
+ * the InterfacesAdded, InterfacesRemoved and PropertiesChanged signals of bluez.
+ * This avoids a D-Bus round trip for every property read (name, alias, RSSI...) of every device.
+ * If the signal handlers could not be registered, the tree is fetched again on every access, or once per
+ * listing (see {@link #beginListing()}).
+ * <br>
+ * Other components follow the object tree by registering a {@link BluezObjectListener} instead of
+ * registering their own signal handlers.
+ *
+ * @author David M.
+ */
+public class BluezObjectSnapshot {
+    private static final String BLUEZ_BUS_NAME = "org.bluez";
+    private static final String BLUEZ_DEVICE_INTERFACE = "org.bluez.Device1";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final DBusConnection connection;
+
+    /** Map of object path -> interface name -> property name -> value */
+    private final Map<String, Map<String, Map<String, Object>>> objects = new ConcurrentHashMap<>();
+
+    /** Map of device object path -> {@link System#nanoTime()} of the last announcement (InterfacesAdded, RSSI or ManufacturerData change) */
+    private final Map<String, Long> lastSeen = new ConcurrentHashMap<>();
+
+    private final List<BluezObjectListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Guards the updates of the snapshot done by signals and by {@link #refresh()} */
+    private final Object updateLock = new Object();
+    /** Signals received while {@link #refresh()} fetches the object tree, replayed afterwards; guarded by updateLock */
+    private List<PendingUpdate> pendingUpdates;
+
+    /** Guards the listing state used if signals are not tracked */
+    private final Object listingLock = new Object();
+    /** Number of running listings, guarded by listingLock */
+    private int listings;
+    /** Incremented when the first of the running listings begins, guarded by listingLock */
+    private long listingGeneration;
+    /** True if the object tree was fetched during the running listings, guarded by listingLock */
+    private boolean listingLoaded;
+
+    private volatile boolean loaded;
+    private volatile boolean tracking;
+
+    BluezObjectSnapshot(DBusConnection _connection) {
+        connection = _connection;
+    }
+
+    /**
+     * Registers the signal handlers which keep the snapshot up to date.
+     *
+     * @param _controller controller used to register the handlers
+     */
+    void startTracking(PaulmannDeviceController _controller) {
+        tracking = _controller.registerSignalHandler(new ObjectAddedHandler())
+                & _controller.registerSignalHandler(new ObjectRemovedHandler())
+                & _controller.registerSignalHandler(new ObjectChangedHandler());
+        if (!tracking) {
+            logger.info("Could not track bluez object changes, object tree will be fetched on every access");
+        }
+    }
+
+    /**
+     * Adds a listener which is called for every change of the bluez object tree.
+     *
+     * @param _listener listener
+     */
+    public void addListener(BluezObjectListener _listener) {
+        if (_listener != null) {
+            listeners.add(_listener);
+        }
+    }
+
+    /**
+     * Removes a listener added by {@link #addListener(BluezObjectListener)}.
+     *
+     * @param _listener listener
+     */
+    public void removeListener(BluezObjectListener _listener) {
+        listeners.remove(_listener);
+    }
+
+    /**
+     * Fetches the whole bluez object tree with a single D-Bus call.
+     * <br>
+     * Signals received while fetching are applied after the fetched tree, so they are not overwritten
+     * by the (possibly older) fetched values. Listeners are notified about these signals once they were applied.
+     *
+     * @return true if the snapshot was refreshed, false on error
+     */
+    public boolean refresh() {
+        List<Runnable> notifications = new ArrayList<>();
+        boolean refreshed = fetch(notifications);
+        // notify outside of the lock, listeners may wait for other threads using this snapshot
+        for (Runnable notification : notifications) {
+            notification.run();
+        }
+        return refreshed;
+    }
+
+    /**
+     * Fetches the object tree and replays the signals received meanwhile.
+     *
+     * @param _notifications receives the listener notifications of the replayed signals
+     * @return true if the snapshot was refreshed, false on error
+     */
+    private synchronized boolean fetch(List<Runnable> _notifications) {
+        TimeMeasure tm = new TimeMeasure();
+        synchronized (updateLock) {
+            pendingUpdates = new ArrayList<>();
+        }
+        try {
+            ObjectManager objectManager = connection.getRemoteObject(BLUEZ_BUS_NAME, "/", ObjectManager.class);
+            Map<DBusPath, Map<String, Map<String, Variant<?>>>> managed = objectManager.GetManagedObjects();
+            Map<String, Map<String, Map<String, Object>>> fresh = new HashMap<>();
+            for (Entry<DBusPath, Map<String, Map<String, Variant<?>>>> entry : managed.entrySet()) {
+                Map<String, Map<String, Object>> interfaces = new ConcurrentHashMap<>();
+                for (Entry<String, Map<String, Variant<?>>> iface : entry.getValue().entrySet()) {
+                    interfaces.put(iface.getKey(), unwrap(iface.getValue()));
+                }
+                fresh.put(entry.getKey().getPath(), interfaces);
+            }
+            synchronized (updateLock) {
+                objects.keySet().retainAll(fresh.keySet());
+                objects.putAll(fresh);
+                lastSeen.keySet().retainAll(fresh.keySet());
+            }
+            loaded = true;
+            logger.debug("PERF: Fetching {} bluez objects took {} ms", fresh.size(), tm.getElapsed());
+            return true;
+        } catch (Exception _ex) {
+            logger.warn("Could not fetch bluez objects.", _ex);
+            return false;
+        } finally {
+            synchronized (updateLock) {
+                for (PendingUpdate pending : pendingUpdates) {
+                    pending.update.run();
+                    _notifications.add(pending.notification);
+                }
+                pendingUpdates = null;
+            }
+        }
+    }
+
+    /**
+     * Applies a signal to the snapshot and notifies the listeners afterwards.
+     * While {@link #refresh()} is running, the signal is buffered and the listeners are notified when it was replayed.
+     *
+     * @param _update change to apply
+     * @param _notification listener calls to do after the change was applied
+     */
+    private void apply(Runnable _update, Runnable _notification) {
+        synchronized (updateLock) {
+            if (pendingUpdates != null) {
+                pendingUpdates.add(new PendingUpdate(_update, _notification));
+                return;
+            }
+            _update.run();
+        }
+        _notification.run();
+    }
+
+    private void notifyListeners(Consumer<BluezObjectListener> _call) {
+        for (BluezObjectListener listener : listeners) {
+            try {
+                _call.accept(listener);
+            } catch (Exception _ex) {
+                logger.warn("Bluez object listener failed.", _ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the properties of all devices known by bluez.
+     *
+     * @return list of {@link DeviceSnapshot}, maybe empty but never null
+     */
+    public List<DeviceSnapshot> getDevices() {
+        ensureLoaded();
+        List<DeviceSnapshot> devices = new ArrayList<>();
+        for (Entry<String, Map<String, Map<String, Object>>> entry : objects.entrySet()) {
+            Map<String, Object> props = entry.getValue().get(BLUEZ_DEVICE_INTERFACE);
+            if (props != null) {
+                devices.add(new DeviceSnapshot(entry.getKey(), props, lastSeen.get(entry.getKey())));
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * Returns the properties of the device with the given object path.
+     *
+     * @param _path object path (e.g. /org/bluez/hci0/dev_00_11_22_33_44_55)
+     * @return {@link DeviceSnapshot} or null if device is unknown
+     */
+    public DeviceSnapshot getDevice(String _path) {
+        if (_path == null) {
+            return null;
+        }
+        ensureLoaded();
+        Map<String, Map<String, Object>> interfaces = objects.get(_path);
+        Map<String, Object> props = interfaces == null ? null : interfaces.get(BLUEZ_DEVICE_INTERFACE);
+        return props == null ? null : new DeviceSnapshot(_path, props, lastSeen.get(_path));
+    }
+
+    /**
+     * Check if the snapshot is kept up to date by bluez signals.
+     *
+     * @return true if tracking
+     */
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * Begins a listing, e.g. reading all devices and then each single device.
+     * <br>
+     * If signals are not tracked, the object tree is only fetched once until the last running listing
+     * was ended by {@link #endListing()}, instead of on every access.
+     */
+    void beginListing() {
+        synchronized (listingLock) {
+            if (listings++ == 0) {
+                listingGeneration++;
+                listingLoaded = false;
+            }
+        }
+    }
+
+    /**
+     * Ends a listing started by {@link #beginListing()}.
+     */
+    void endListing() {
+        synchronized (listingLock) {
+            if (listings > 0 && --listings == 0) {
+                listingLoaded = false;
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded && tracking) {
+            return;
+        }
+        long generation;
+        synchronized (listingLock) {
+            if (loaded && listingLoaded) {
+                return;
+            }
+            generation = listings > 0 ? listingGeneration : -1;
+        }
+        if (refresh()) {
+            synchronized (listingLock) {
+                if (generation == listingGeneration && listings > 0) {
+                    listingLoaded = true;
+                }
+            }
+        }
+    }
+
+    private static Map<String, Object> unwrap(Map<String, Variant<?>> _props) {
+        Map<String, Object> result = new ConcurrentHashMap<>();
+        if (_props != null) {
+            for (Entry<String, Variant<?>> prop : _props.entrySet()) {
+                if (prop.getValue() != null && prop.getValue().getValue() != null) {
+                    result.put(prop.getKey(), prop.getValue().getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds objects and interfaces announced by bluez.
+     */
+    private class ObjectAddedHandler extends AbstractInterfacesAddedHandler {
+        @Override
+        public void handle(InterfacesAdded _signal) {
+            String path = _signal.getSignalSource().getPath();
+            long now = System.nanoTime();
+            apply(() -> {
+                Map<String, Map<String, Object>> interfaces = objects.computeIfAbsent(path, k -> new ConcurrentHashMap<>());
+                for (Entry<String, Map<String, Variant<?>>> iface : _signal.getInterfaces().entrySet()) {
+                    interfaces.put(iface.getKey(), unwrap(iface.getValue()));
+                }
+                if (_signal.getInterfaces().containsKey(BLUEZ_DEVICE_INTERFACE)) {
+                    lastSeen.put(path, now);
+                }
+            }, () -> notifyListeners(l -> l.interfacesAdded(path, _signal.getInterfaces().keySet())));
+        }
+    }
+
+    /**
+     * Removes interfaces (and objects without any interface left) removed by bluez.
+     */
+    private class ObjectRemovedHandler extends AbstractInterfacesRemovedHandler {
+        @Override
+        public void handle(InterfacesRemoved _signal) {
+            String path = _signal.getSignalSource().getPath();
+            apply(() -> {
+                if (_signal.getInterfaces().contains(BLUEZ_DEVICE_INTERFACE)) {
+                    lastSeen.remove(path);
+                }
+                Map<String, Map<String, Object>> interfaces = objects.get(path);
+                if (interfaces == null) {
+                    return;
+                }
+                interfaces.keySet().removeAll(_signal.getInterfaces());
+                if (interfaces.isEmpty()) {
+                    objects.remove(path);
+                }
+            }, () -> notifyListeners(l -> l.interfacesRemoved(path, _signal.getInterfaces())));
+        }
+    }
+
+    /**
+     * Applies changed and invalidated properties.
+     */
+    private class ObjectChangedHandler extends AbstractPropertiesChangedHandler {
+        @Override
+        public void handle(PropertiesChanged _signal) {
+            long now = System.nanoTime();
+            apply(() -> {
+                Map<String, Map<String, Object>> interfaces = objects.get(_signal.getPath());
+                if (interfaces == null) {
+                    return; // object not known yet, will be announced by InterfacesAdded
+                }
+                Map<String, Object> props = interfaces.computeIfAbsent(_signal.getInterfaceName(), k -> new ConcurrentHashMap<>());
+                props.putAll(unwrap(_signal.getPropertiesChanged()));
+                if (_signal.getPropertiesRemoved() != null) {
+                    props.keySet().removeAll(_signal.getPropertiesRemoved());
+                }
+                if (BLUEZ_DEVICE_INTERFACE.equals(_signal.getInterfaceName())
+                        && (_signal.getPropertiesChanged().containsKey("RSSI")
+                                || _signal.getPropertiesChanged().containsKey("ManufacturerData"))) {
+                    lastSeen.put(_signal.getPath(), now); // device sent an advertisement
+                }
+            }, () -> notifyListeners(l -> l.propertiesChanged(_signal.getPath(), _signal.getInterfaceName(),
+                    _signal.getPropertiesChanged().keySet())));
+        }
+    }
+
+    /**
+     * Signal buffered while the object tree is fetched.
+     */
+    private static class PendingUpdate {
+        private final Runnable update;
+        private final Runnable notification;
+
+        PendingUpdate(Runnable _update, Runnable _notification) {
+            update = _update;
+            notification = _notification;
+        }
+    }
+
+    /**
+     * Immutable copy of the properties of a single bluez device.
+     *
+     * @author David M.
+     */
+    public static class DeviceSnapshot {
+        private final String path;
+        private final Map<String, Object> properties;
+        private final Long lastSeen;
+
+        DeviceSnapshot(String _path, Map<String, Object> _properties, Long _lastSeen) {
+            path = _path;
+            properties = Collections.unmodifiableMap(new HashMap<>(_properties));
+            lastSeen = _lastSeen;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Check if the device announced itself (was added or sent an advertisement) after the given time.
+         * Devices only known from the bluez cache were not seen.
+         *
+         * @param _nanoTime time as returned by {@link System#nanoTime()}
+         * @return true if seen after the given time
+         */
+        public boolean isSeenSince(long _nanoTime) {
+            return lastSeen != null && lastSeen - _nanoTime >= 0;
+        }
+
+        /**
+         * Object path of the adapter which knows this device (e.g. /org/bluez/hci0).
+         * @return path, maybe null
+         */
+        public String getAdapterPath() {
+            Object adapter = properties.get("Adapter");
+            if (adapter instanceof DBusPath) {
+                return ((DBusPath) adapter).getPath();
+            }
+            int idx = path.lastIndexOf("/dev_");
+            return idx < 0 ? null : path.substring(0, idx);
+        }
+
+        public String getAddress() {
+            return getString("Address");
+        }
+
+        public String getName() {
+            return getString("Name");
+        }
+
+        public String getAlias() {
+            return getString("Alias");
+        }
+
+        public String getModAlias() {
+            return getString("Modalias");
+        }
+
+        public boolean isConnected() {
+            return Boolean.TRUE.equals(properties.get("Connected"));
+        }
+
+        public boolean isPaired() {
+            return Boolean.TRUE.equals(properties.get("Paired"));
+        }
+
+        /**
+         * Signal strength of the last advertisement seen while scanning.
+         * @return RSSI or null if device was not seen by the current scan
+         */
+        public Short getRssi() {
+            Number rssi = getNumber("RSSI");
+            return rssi == null ? null : rssi.shortValue();
+        }
+
+        /**
+         * Device class, only available for classic (BR/EDR) devices.
+         * @return class or null
+         */
+        public Integer getBluetoothClass() {
+            Number btClass = getNumber("Class");
+            return btClass == null ? null : btClass.intValue();
+        }
+
+        public Integer getAppearance() {
+            Number appearance = getNumber("Appearance");
+            return appearance == null ? null : appearance.intValue();
+        }
+
+        /**
+         * UUIDs of the services announced by the device.
+         * @return array, maybe empty but never null
+         */
+        public String[] getUuids() {
+            Object uuids = properties.get("UUIDs");
+            if (uuids instanceof List) {
+                List<?> list = (List<?>) uuids;
+                String[] result = new String[list.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = String.valueOf(list.get(i));
+                }
+                return result;
+            } else if (uuids instanceof String[]) {
+                return ((String[]) uuids).clone();
+            }
+            return new String[0];
+        }
+
+        private String getString(String _name) {
+            Object value = properties.get(_name);
+            return value == null ? null : value.toString();
+        }
+
+        private Number getNumber(String _name) {
+            Object value = properties.get(_name);
+            return value instanceof Number ? (Number) value : null;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " [path=" + path + ", properties=" + properties + "]";
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.github.hypfvieh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.paulmann.connection.CommandPriority;
+import com.github.hypfvieh.paulmann.devices.AbstractPaulmannDevice;
+import com.github.hypfvieh.paulmann.features.FeatureIdent;
+import com.github.hypfvieh.paulmann.features.SystemTimeFeature;
+
+/**
+ * Keeps the clocks of all devices in sync with the local clock.
+ * <br>
+ * Device clocks drive the timers of the devices, so drifting clocks let lamps switch at different times.
+ * Once started, the time is sent to all devices supporting {@link SystemTimeFeature} every
+ * {@link #getInterval()} milliseconds. Devices are synced in parallel, each one delayed by a random
+ * jitter, so the devices are not all connected at the same moment.
+ * <br>
+ * The time is taken when the device is connected and the write is about to be sent (see {@link SystemTimeFeature#syncDateTime()}),
+ * so neither the command queue nor connecting the device delays the clock.
+ * Syncs are sent as {@link CommandPriority#BACKGROUND} commands.
+ *
+ * @author David M.
+ */
+public class ClockSyncService {
+    public static final long DEFAULT_INTERVAL_MS = TimeUnit.HOURS.toMillis(6);
+    public static final long DEFAULT_JITTER_MS = TimeUnit.SECONDS.toMillis(30);
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PaulmannDeviceController controller;
+    private final Map<String, DeviceClock> clocks = new ConcurrentHashMap<>();
+
+    private volatile long interval = DEFAULT_INTERVAL_MS;
+    private volatile long jitter = DEFAULT_JITTER_MS;
+
+    private ScheduledThreadPoolExecutor executor;
+    private ScheduledFuture<?> nextCycle;
+
+    ClockSyncService(PaulmannDeviceController _controller) {
+        controller = _controller;
+    }
+
+    /**
+     * Setup the time between two syncs of all devices.
+     *
+     * @param _intervalMs interval in milliseconds, takes effect after the next sync
+     */
+    public void setInterval(long _intervalMs) {
+        interval = Math.max(TimeUnit.SECONDS.toMillis(1), _intervalMs);
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Setup the maximum random delay of each device within a sync.
+     *
+     * @param _jitterMs jitter in milliseconds, 0 to sync all devices at once
+     */
+    public void setJitter(long _jitterMs) {
+        jitter = Math.max(0, _jitterMs);
+    }
+
+    public long getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Start syncing in the background. The first sync starts immediately.
+     * Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (nextCycle != null) {
+            return;
+        }
+        nextCycle = getExecutor().schedule(this::cycle, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop background syncing. Syncs already in progress are finished.
+     */
+    public synchronized void stop() {
+        if (nextCycle != null) {
+            nextCycle.cancel(false);
+            nextCycle = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Check if background syncing is running.
+     *
+     * @return true if started
+     */
+    public synchronized boolean isRunning() {
+        return nextCycle != null;
+    }
+
+    /**
+     * Sync all devices now without jitter and wait until all of them are done.
+     *
+     * @return map of MAC address / true if synced successfully
+     */
+    public Map<String, Boolean> syncNow() {
+        Map<String, CompletableFuture<Boolean>> pending = syncAll(0);
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        for (Entry<String, CompletableFuture<Boolean>> entry : pending.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().join());
+        }
+        return result;
+    }
+
+    /**
+     * Milliseconds since the last successful sync of the given device.
+     *
+     * @param _macAddress MAC address of the device
+     * @return age in milliseconds or -1 if the device was never synced
+     */
+    public long getLastSyncAge(String _macAddress) {
+        DeviceClock clock = clocks.get(_macAddress);
+        return clock == null ? -1 : clock.toStatus().getLastSyncAgeMs();
+    }
+
+    /**
+     * Sync state of all devices handled by the last sync.
+     *
+     * @return unmodifiable map of MAC address / {@link SyncStatus}
+     */
+    public Map<String, SyncStatus> getSyncStatus() {
+        Map<String, SyncStatus> result = new LinkedHashMap<>();
+        for (Entry<String, DeviceClock> entry : clocks.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toStatus());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Age of the oldest successful sync of all known devices.
+     *
+     * @return age in milliseconds, -1 if any device was never synced successfully or no device is known
+     */
+    public long getMaxSyncAge() {
+        long max = -1;
+        for (DeviceClock clock : clocks.values()) {
+            long age = clock.toStatus().getLastSyncAgeMs();
+            if (age < 0) {
+                return -1;
+            }
+            max = Math.max(max, age);
+        }
+        return max;
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(DEFAULT_PARALLELISM, r -> {
+                Thread t = new Thread(r, "paulmann-clock-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor;
+    }
+
+    private void cycle() {
+        try {
+            Map<String, CompletableFuture<Boolean>> pending = syncAll(jitter);
+            logger.debug("Clock sync of {} devices started", pending.size());
+        } catch (Exception _ex) {
+            logger.warn("Clock sync failed.", _ex);
+        }
+        synchronized (this) {
+            if (nextCycle != null && executor != null) {
+                nextCycle = executor.schedule(this::cycle, interval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private Map<String, CompletableFuture<Boolean>> syncAll(long _jitterMs) {
+        ScheduledThreadPoolExecutor exec = getExecutor();
+        Map<String, CompletableFuture<Boolean>> pending = new LinkedHashMap<>();
+        List<String> known = new ArrayList<>();
+        for (Entry<String, AbstractPaulmannDevice> entry : controller.getDevices().entrySet()) {
+            if (!entry.getValue().isFeatureSupported(FeatureIdent.PAULMANN_SYSTEMTIME_FEATURE)) {
+                continue;
+            }
+            known.add(entry.getKey());
+            DeviceClock clock = clocks.computeIfAbsent(entry.getKey(), k -> new DeviceClock());
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            long delay = _jitterMs > 0 ? ThreadLocalRandom.current().nextLong(_jitterMs) : 0;
+            exec.schedule(() -> result.complete(sync(entry.getValue(), clock)), delay, TimeUnit.MILLISECONDS);
+            pending.put(entry.getKey(), result);
+        }
+        clocks.keySet().retainAll(known);
+        return pending;
+    }
+
+    private boolean sync(AbstractPaulmannDevice _device, DeviceClock _clock) {
+        try {
+            SystemTimeFeature feature = _device.getFeature(FeatureIdent.PAULMANN_SYSTEMTIME_FEATURE);
+            if (feature == null) {
+                return false;
+            }
+            boolean success = CommandPriority.BACKGROUND.call(feature::syncDateTime);
+            _clock.update(success, Math.max(0, feature.getMeasuredWriteLatency() / 2), success ? null : feature.getLastError());
+            if (!success) {
+                logger.debug("Clock sync of {} failed", feature.getMacAddress(), feature.getLastError());
+            }
+            return success;
+        } catch (Exception _ex) {
+            logger.debug("Clock sync of {} failed", _device, _ex);
+            _clock.update(false, 0, _ex);
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [interval=" + interval + ", jitter=" + jitter + ", devices=" + clocks.size() + "]";
+    }
+
+    /**
+     * Mutable sync state of a single device.
+     */
+    private static class DeviceClock {
+        private volatile long lastSync;
+        private volatile long latency = -1;
+        private volatile long failures;
+        private volatile Exception lastError;
+
+        synchronized void update(boolean _success, long _oneWayLatency, Exception _error) {
+            if (_success) {
+                lastSync = System.currentTimeMillis();
+                latency = _oneWayLatency;
+                lastError = null;
+            } else {
+                failures++;
+                lastError = _error;
+            }
+        }
+
+        synchronized SyncStatus toStatus() {
+            return new SyncStatus(lastSync, latency, failures, lastError);
+        }
+    }
+
+    /**
+     * Clock sync state of a single device.
+     *
+     * @author David M.
+     */
+    public static class SyncStatus {
+        private final long lastSync;
+        private final long latencyMs;
+        private final long failures;
+        private final Exception lastError;
+
+        SyncStatus(long _lastSync, long _latencyMs, long _failures, Exception _lastError) {
+            lastSync = _lastSync;
+            latencyMs = _latencyMs;
+            failures = _failures;
+            lastError = _lastError;
+        }
+
+        /**
+         * Time of the last successful sync.
+         * @return epoch milliseconds or 0 if never synced
+         */
+        public long getLastSync() {
+            return lastSync;
+        }
+
+        /**
+         * Milliseconds since the last successful sync.
+         * @return age or -1 if never synced
+         */
+        public long getLastSyncAgeMs() {
+            return lastSync == 0 ? -1 : System.currentTimeMillis() - lastSync;
+        }
+
+        /**
+         * Transport delay (half of the measured write latency) the device clock was compensated with.
+         * @return latency in milliseconds or -1 if not measured yet
+         */
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        /**
+         * Number of failed syncs.
+         * @return long
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Error of the last sync, null if it was successful.
+         * @return Exception or null
+         */
+        public Exception getLastError() {
+            return lastError;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " [lastSyncAgeMs=" + getLastSyncAgeMs() + ", latencyMs=" + latencyMs
+                    + ", failures=" + failures + "]";
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.github.hypfvieh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import org.bluez.GattCharacteristic1;
+import org.bluez.GattService1;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+import com.github.hypfvieh.paulmann.devices.AbstractPaulmannDevice;
+import com.github.hypfvieh.paulmann.devices.DeviceFactory;
+
+/**
+ * Persists the GATT layout (service and characteristics with their DBus object paths) of known devices.
+ * <br>
+ * The stored layout allows re-creating {@link AbstractPaulmannDevice} instances without connecting
+ * to the devices and enumerating their GATT services again.
+ * <br>
+ * The file contains one device per line: MAC, device alias, service UUID, service path and the
+ * characteristics as uuid=path list, separated by tabs. Separator characters in the alias are
+ * percent-encoded.
+ *
+ * @author David M.
+ */
+public class DeviceTopologyCache {
+    private static final String HEADER = "# paulmann-bt-lib device topology v1";
+    private static final String BLUEZ_BUSNAME = "org.bluez";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Path file;
+
+    public DeviceTopologyCache(Path _file) {
+        file = _file;
+    }
+
+    /**
+     * Read all entries from the cache file.
+     *
+     * @return list of entries, empty if file does not exist or is invalid
+     */
+    public List<TopologyEntry> load() {
+        List<TopologyEntry> entries = new ArrayList<>();
+        if (!Files.isReadable(file)) {
+            return entries;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+                logger.info("Ignoring topology cache {}, unknown format", file);
+                return entries;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                TopologyEntry entry = TopologyEntry.parse(line);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (IOException _ex) {
+            logger.warn("Could not read topology cache {}", file, _ex);
+        }
+        return entries;
+    }
+
+    /**
+     * Write the given layouts to the cache file.
+     *
+     * @param _entries layouts to store
+     */
+    public void save(Collection<TopologyEntry> _entries) {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (TopologyEntry entry : _entries) {
+            lines.add(entry.format());
+        }
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException _ex) {
+            logger.warn("Could not write topology cache {}", file, _ex);
+        }
+    }
+
+    /**
+     * Re-create the device instance of the given entry without connecting to the device.
+     *
+     * @param _entry cached layout
+     * @param _device bluetooth device the entry belongs to
+     * @param _connection DBus connection used to create the GATT object proxies
+     * @return device instance or null if it could not be created
+     */
+    public AbstractPaulmannDevice restore(TopologyEntry _entry, BluetoothDevice _device, DBusConnection _connection) {
+        try {
+            CachedGattService service = new CachedGattService(
+                    _connection.getRemoteObject(BLUEZ_BUSNAME, _entry.getServicePath(), GattService1.class),
+                    _device, _entry.getServicePath(), _connection, _entry.getServiceUuid());
+            for (Entry<String, String> ch : _entry.getCharacteristics().entrySet()) {
+                GattCharacteristic1 remote = _connection.getRemoteObject(BLUEZ_BUSNAME, ch.getValue(), GattCharacteristic1.class);
+                service.characteristics.add(new CachedGattCharacteristic(remote, service, ch.getValue(), _connection, ch.getKey()));
+            }
+            return DeviceFactory.getInstance().createDevice(_entry.getAlias(), service);
+        } catch (DBusException _ex) {
+            logger.debug("Could not restore device {} from topology cache", _entry.getMacAddr(), _ex);
+            return null;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * GATT service which returns the UUID and characteristics restored from cache instead of querying DBus.
+     */
+    private static class CachedGattService extends BluetoothGattService {
+        private final List<BluetoothGattCharacteristic> characteristics = new ArrayList<>();
+        private final String uuid;
+
+        CachedGattService(GattService1 _service, BluetoothDevice _device, String _dbusPath, DBusConnection _connection,
+                String _uuid) {
+            super(_service, _device, _dbusPath, _connection);
+            uuid = _uuid;
+        }
+
+        @Override
+        public String getUuid() {
+            return uuid;
+        }
+
+        @Override
+        public List<BluetoothGattCharacteristic> getGattCharacteristics() {
+            return Collections.unmodifiableList(characteristics);
+        }
+    }
+
+    /**
+     * GATT characteristic which returns the UUID restored from cache instead of querying DBus.
+     */
+    private static class CachedGattCharacteristic extends BluetoothGattCharacteristic {
+        private final String uuid;
+
+        CachedGattCharacteristic(GattCharacteristic1 _characteristic, BluetoothGattService _service, String _dbusPath,
+                DBusConnection _connection, String _uuid) {
+            super(_characteristic, _service, _dbusPath, _connection);
+            uuid = _uuid;
+        }
+
+        @Override
+        public String getUuid() {
+            return uuid;
+        }
+    }
+
+    /**
+     * Cached GATT layout of a single device.
+     *
+     * @author David M.
+     */
+    public static class TopologyEntry {
+        /** characters which have to be encoded in the alias */
+        private static final String ESCAPED_CHARS = "%\t\r\n,=";
+
+        private final String macAddr;
+        private final String alias;
+        private final String serviceUuid;
+        private final String servicePath;
+        /** Map of characteristic UUID -> DBus object path */
+        private final Map<String, String> characteristics;
+
+        TopologyEntry(String _macAddr, String _alias, String _serviceUuid, String _servicePath,
+                Map<String, String> _characteristics) {
+            macAddr = _macAddr;
+            alias = _alias;
+            serviceUuid = _serviceUuid;
+            servicePath = _servicePath;
+            characteristics = Collections.unmodifiableMap(_characteristics);
+        }
+
+        /**
+         * Create an entry for the given GATT service.
+         * Enumerates the characteristics of the service, so the device should be connected.
+         *
+         * @param _macAddr MAC of the device
+         * @param _alias alias of the device
+         * @param _serviceUuid UUID of the service
+         * @param _service service
+         * @return entry
+         */
+        public static TopologyEntry of(String _macAddr, String _alias, String _serviceUuid, BluetoothGattService _service) {
+            Map<String, String> chars = new LinkedHashMap<>();
+            for (BluetoothGattCharacteristic ch : _service.getGattCharacteristics()) {
+                chars.put(ch.getUuid(), ch.getDbusPath());
+            }
+            return new TopologyEntry(_macAddr, _alias, _serviceUuid, _service.getDbusPath(), chars);
+        }
+
+        static TopologyEntry parse(String _line) {
+            String[] parts = _line.split("\t", -1);
+            if (_line.startsWith("#") || parts.length != 5) {
+                return null;
+            }
+            Map<String, String> chars = new LinkedHashMap<>();
+            if (!parts[4].isEmpty()) {
+                for (String ch : parts[4].split(",")) {
+                    String[] kv = ch.split("=", 2);
+                    if (kv.length != 2) {
+                        return null;
+                    }
+                    chars.put(kv[0], kv[1]);
+                }
+            }
+            return new TopologyEntry(parts[0], unescape(parts[1]), parts[2], parts[3], chars);
+        }
+
+        String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(macAddr).append('\t').append(escape(alias)).append('\t').append(serviceUuid).append('\t').append(servicePath)
+                .append('\t');
+            boolean first = true;
+            for (Entry<String, String> ch : characteristics.entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(ch.getKey()).append('=').append(ch.getValue());
+                first = false;
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Percent-encodes all characters of the value which are used as separator in the cache file.
+         *
+         * @param _value value to encode
+         * @return encoded value
+         */
+        static String escape(String _value) {
+            if (_value == null) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder(_value.length());
+            for (char c : _value.toCharArray()) {
+                if (ESCAPED_CHARS.indexOf(c) >= 0) {
+                    sb.append(String.format("%%%02X", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Decodes a value encoded by {@link #escape(String)}.
+         *
+         * @param _value encoded value
+         * @return decoded value
+         */
+        static String unescape(String _value) {
+            StringBuilder sb = new StringBuilder(_value.length());
+            for (int i = 0; i < _value.length(); i++) {
+                char c = _value.charAt(i);
+                if (c == '%' && i + 2 < _value.length() && isHex(_value.charAt(i + 1)) && isHex(_value.charAt(i + 2))) {
+                    sb.append((char) Integer.parseInt(_value.substring(i + 1, i + 3), 16));
+                    i += 2;
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+
+        private static boolean isHex(char _c) {
+            return Character.digit(_c, 16) >= 0;
+        }
+
+        public String getMacAddr() {
+            return macAddr;
+        }
+
+        public String getAlias() {
+            return alias;
+        }
+
+        public String getServiceUuid() {
+            return serviceUuid;
+        }
+
+        public String getServicePath() {
+            return servicePath;
+        }
+
+        public Map<String, String> getCharacteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((macAddr == null) ? 0 : macAddr.hashCode());
+            result = prime * result + ((serviceUuid == null) ? 0 : serviceUuid.hashCode());
+            result = prime * result + ((servicePath == null) ? 0 : servicePath.hashCode());
+            result = prime * result + characteristics.hashCode();
+            return result;
+        }
+
+        /**
+         * Two entries are equal if they describe the same layout (the alias is not compared).
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            TopologyEntry other = (TopologyEntry) obj;
+            return Objects.equals(macAddr, other.macAddr)
+                    && Objects.equals(serviceUuid, other.serviceUuid)
+                    && Objects.equals(servicePath, other.servicePath)
+                    && characteristics.equals(other.characteristics);
+        }
+
+        @Override
+        public String toString() {
+            return "TopologyEntry [macAddr=" + macAddr + ", alias=" + alias + ", serviceUuid=" + serviceUuid
+                    + ", servicePath=" + servicePath + ", characteristics=" + characteristics + "]";
+        }
+    }
+}
@@ -1,33 +1,53 @@
 package com.github.hypfvieh;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bluez.Device1;
 import org.bluez.exceptions.BluezDoesNotExistException;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
 import org.freedesktop.dbus.exceptions.DBusException;
 import org.freedesktop.dbus.handlers.AbstractSignalHandlerBase;
 import org.freedesktop.dbus.messages.DBusSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.hypfvieh.BluezObjectSnapshot.DeviceSnapshot;
+import com.github.hypfvieh.DeviceTopologyCache.TopologyEntry;
 import com.github.hypfvieh.bluetooth.DeviceManager;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothAdapter;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+import com.github.hypfvieh.paulmann.connection.CommandPriority;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.connection.DeviceSession;
 import com.github.hypfvieh.paulmann.devices.AbstractPaulmannDevice;
 import com.github.hypfvieh.paulmann.devices.DeviceFactory;
-import com.github.hypfvieh.paulmann.devices.LampRGB;
-import com.github.hypfvieh.paulmann.devices.LampRGBW;
-import com.github.hypfvieh.paulmann.devices.LampW;
-import com.github.hypfvieh.paulmann.devices.LampWC;
+import com.github.hypfvieh.paulmann.devices.DeviceGroup;
 import com.github.hypfvieh.util.TimeMeasure;
 
 /**
@@ -39,10 +59,14 @@ import com.github.hypfvieh.util.TimeMeasure;
 public class PaulmannDeviceController {
     private static final PaulmannDeviceController INSTANCE = new PaulmannDeviceController();
 
-    private static final List<String> SUPPORTED_DEVICES = Arrays.asList(
-            new String[] { LampW.DEVICE_ALIAS, LampRGB.DEVICE_ALIAS, LampWC.DEVICE_ALIAS, LampRGBW.DEVICE_ALIAS });
+    private static final String BLUEZ_BUS_NAME = "org.bluez";
+    private static final String BLUEZ_DEVICE_INTERFACE = "org.bluez.Device1";
+    private static final String BLUEZ_ADAPTER_INTERFACE = "org.bluez.Adapter1";
 
     public static final int DEFAULT_SCAN_TIMEOUT_SEC = 10;
+    private static final long SCAN_POLL_INTERVAL_MS = 250L;
+    public static final int DEFAULT_MAX_PARALLEL_CONNECTIONS = 4;
+    public static final long DEFAULT_REFRESH_DEVICE_TIMEOUT_MS = 30000L;
     private static final List<BluetoothAdapter> BT_ADAPTER_LIST = new ArrayList<>();
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
@@ -50,19 +74,52 @@ public class PaulmannDeviceController {
     private DeviceManager manager;
 
     /** Map of MAC address -> device instance */
-    private Map<String, AbstractPaulmannDevice> devices = new LinkedHashMap<>();
+    private final Map<String, AbstractPaulmannDevice> devices = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /** MAC addresses of devices which were added or changed since the last refresh */
+    private final Set<String> changedDevices = ConcurrentHashMap.newKeySet();
+
+    /** Serializes {@link #refreshDevices(boolean)} calls */
+    private final Object refreshLock = new Object();
+
+    private volatile int maxParallelConnections = DEFAULT_MAX_PARALLEL_CONNECTIONS;
+    private volatile long refreshDeviceTimeout = DEFAULT_REFRESH_DEVICE_TIMEOUT_MS;
+
+    private volatile DeviceTopologyCache topologyCache;
+
+    /** Map of MAC address -> GATT layout collected while probing or restoring the device */
+    private final Map<String, TopologyEntry> topologyEntries = new ConcurrentHashMap<>();
+
+    private final AdapterBalancer adapterBalancer;
+
+    /** Map of MAC address -> adapter object path of registered devices removed by bluez, re-probed if the adapter goes away */
+    private final Map<String, String> orphanedDevices = new ConcurrentHashMap<>();
+
+    private BluezObjectSnapshot objectSnapshot;
+
+    private final ClockSyncService clockSync = new ClockSyncService(this);
 
     private PaulmannDeviceController() {
         try {
             manager = DeviceManager.createInstance(false);
-
-            // Map<DiscoveryFilter, Object> filter = new HashMap<>();
-            // only scan for bluetooth low energy (BLE)
-            // filter.put(DiscoveryFilter.Transport, DiscoveryTransport.LE);
-            // manager.setScanFilter(filter);
+            objectSnapshot = new BluezObjectSnapshot(manager.getDbusConnection());
+            // LE-only scanning is configured per scan, see ScanProfile
         } catch (DBusException _ex) {
             throw new RuntimeException(_ex);
         }
+        adapterBalancer = new AdapterBalancer(objectSnapshot);
+        registerDeviceTracking();
+    }
+
+    /**
+     * Keeps the device registry up to date using the signals tracked by the bluez object snapshot.
+     */
+    private void registerDeviceTracking() {
+        objectSnapshot.addListener(new DeviceTracker());
+        objectSnapshot.startTracking(this);
+        if (!objectSnapshot.isTracking()) {
+            logger.info("Device tracking incomplete, use refreshDevices(true) to rebuild all devices");
+        }
     }
 
     public static PaulmannDeviceController getInstance() {
@@ -114,72 +171,608 @@ public class PaulmannDeviceController {
     }
 
     /**
-     * Finds and creates instances of all supported Bluetooth devices.
+     * Scan for bluetooth devices on all adapters using the given profile.
+     * <br>
+     * The scan runs until the profile timeout is reached, or until all expected devices of the profile have been seen.
+     * Only devices which announced themselves during the scan are reported, devices only known from the bluez cache
+     * are ignored (unless bluez signals could not be tracked).
+     *
+     * @param _profile scan settings, null to use the default {@link ScanProfile}
+     * @return devices matching the profile, in order of discovery
+     * @throws InterruptedException if interrupted while scanning
      */
-    public void refreshDevices() {
-        devices.clear();
+    public List<BluetoothDevice> scanForDevices(ScanProfile _profile) throws InterruptedException {
+        ScanProfile profile = _profile == null ? new ScanProfile() : _profile;
+        logger.debug("Scanning for bluetooth devices using {}", profile);
+
         TimeMeasure tm = new TimeMeasure();
-        for (BluetoothDevice device : manager.getDevices()) {
-            if (!SUPPORTED_DEVICES.contains(device.getName())) {
-                logger.debug("Device '{}' does not match any supported device name, ignoring.", device.getName());
-                continue; // ignore unsupported devices
+        long scanStart = System.nanoTime();
+        boolean tracking = objectSnapshot.isTracking();
+        List<BluetoothAdapter> adapters = new ArrayList<>();
+        Map<String, DeviceSnapshot> found = new LinkedHashMap<>();
+        try {
+            try {
+                manager.setScanFilter(profile.toDiscoveryFilter());
+            } catch (Exception _ex) {
+                logger.debug("Could not set discovery filter, filtering scan results only", _ex);
+            }
+            adapters.addAll(manager.getAdapters());
+            for (BluetoothAdapter adapter : adapters) {
+                try {
+                    adapter.startDiscovery();
+                } catch (Exception _ex) {
+                    logger.info("Could not start discovery on adapter {}", adapter.getAddress(), _ex);
+                }
+            }
+
+            long deadline = System.currentTimeMillis() + profile.getTimeout() * 1000L;
+            while (true) {
+                for (DeviceSnapshot device : objectSnapshot.getDevices()) {
+                    if (tracking && !device.isSeenSince(scanStart)) {
+                        continue; // cached by bluez, RSSI is from an earlier scan
+                    }
+                    if (!found.containsKey(device.getAddress()) && profile.matches(device)) {
+                        found.put(device.getAddress(), device);
+                    }
+                }
+                if (profile.isComplete(found.keySet())) {
+                    logger.debug("PERF: All {} expected devices found after {} ms", found.size(), tm.getElapsed());
+                    break;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                Thread.sleep(Math.min(SCAN_POLL_INTERVAL_MS, remaining));
+            }
+        } finally {
+            for (BluetoothAdapter adapter : adapters) {
+                try {
+                    adapter.stopDiscovery();
+                } catch (Exception _ex) {
+                    logger.debug("Could not stop discovery on adapter {}", adapter.getAddress(), _ex);
+                }
             }
-            tm.reset();
             try {
-                if (device.connect()) {
-                    logger.debug("PERF: Connection establishment took {} ms", tm.getElapsed());
-                    List<BluetoothGattService> services = device.getGattServices();
-                    for (BluetoothGattService gattService : services) {
-                        if (!gattService.getUuid().toUpperCase().startsWith("0000FFB")) { // skip all non-paulmann services
-                            continue;
-                        }
-                        logger.debug("PERF: Filtering services took {} ms", tm.getElapsed());
-                        AbstractPaulmannDevice paulmannDevice = DeviceFactory.getInstance().createDevice(gattService);
-                        if (paulmannDevice != null) {
-                            logger.debug("PERF: Device creation took {} ms", tm.getElapsed());
-                            devices.put(device.getAddress(), paulmannDevice);
-                        } else {
-                            logger.warn("Unable to create device for device={}, gattService={}",
-                                    ToStringHelper.toString(device), ToStringHelper.toString(gattService));
+                manager.setScanFilter(new LinkedHashMap<>());
+            } catch (Exception _ex) {
+                logger.debug("Could not reset discovery filter", _ex);
+            }
+        }
+        logger.debug("Scanning for bluetooth devices has finished, found {} devices in {} ms", found.size(), tm.getElapsed());
+
+        return toBluetoothDevices(found.values(), adapters);
+    }
+
+    /**
+     * Creates the {@link BluetoothDevice} objects of the given devices without querying bluez.
+     * Devices of adapters not contained in the given list are skipped.
+     *
+     * @param _snapshots devices taken from the bluez object snapshot
+     * @param _adapters adapters to use
+     * @return list of {@link BluetoothDevice}, one entry per adapter which knows the device
+     */
+    private List<BluetoothDevice> toBluetoothDevices(Collection<DeviceSnapshot> _snapshots, List<BluetoothAdapter> _adapters) {
+        Map<String, BluetoothAdapter> adapterByPath = new HashMap<>();
+        for (BluetoothAdapter adapter : _adapters) {
+            adapterByPath.put(adapter.getDbusPath(), adapter);
+        }
+        List<BluetoothDevice> result = new ArrayList<>();
+        for (DeviceSnapshot snapshot : _snapshots) {
+            BluetoothAdapter adapter = adapterByPath.get(snapshot.getAdapterPath());
+            if (adapter == null || snapshot.getAddress() == null) {
+                continue;
+            }
+            try {
+                Device1 remote = manager.getDbusConnection().getRemoteObject(BLUEZ_BUS_NAME, snapshot.getPath(), Device1.class);
+                result.add(new SnapshotBluetoothDevice(remote, adapter, snapshot, manager.getDbusConnection()));
+            } catch (DBusException _ex) {
+                logger.debug("Could not create device object for {}", snapshot.getPath(), _ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Devices known by bluez on all adapters, taken from the bluez object snapshot.
+     *
+     * @param _supportedOnly only return devices whose name belongs to a supported device
+     * @return list of {@link BluetoothDevice}, one entry per adapter which knows the device
+     */
+    private List<BluetoothDevice> listKnownDevices(boolean _supportedOnly) {
+        List<DeviceSnapshot> selected = new ArrayList<>();
+        for (DeviceSnapshot dev : objectSnapshot.getDevices()) {
+            if (!_supportedOnly || isSupportedDevice(dev.getName())) {
+                selected.add(dev);
+            } else {
+                logger.debug("Device '{}' does not match any supported device name, ignoring.", dev.getName());
+            }
+        }
+        return toBluetoothDevices(selected, manager.getAdapters());
+    }
+
+    /**
+     * Finds and creates instances of all new or changed supported Bluetooth devices.
+     * <br>
+     * Devices which are already known and did not change (according to the bluez signals received since the
+     * last refresh) are kept as they are and will not be connected again.
+     * <br>
+     * If more than one bluetooth adapter is present, each device is assigned to one adapter by the {@link AdapterBalancer}.
+     *
+     * @return timing report for each probed device, in order of discovery
+     * @see #refreshDevices(boolean)
+     */
+    public List<DeviceRefreshReport> refreshDevices() {
+        return refreshDevices(false);
+    }
+
+    /**
+     * Finds and creates instances of supported Bluetooth devices.
+     * <br>
+     * Up to {@link #getMaxParallelConnections()} devices per bluetooth adapter are probed at the same time.
+     * Devices which could not be probed within {@link #getRefreshDeviceTimeout()} are skipped.
+     *
+     * Concurrent calls (e.g. by the user, the cache validation and the adapter rebalancing) are executed
+     * one after another, so a device is never probed by two refreshes at the same time.
+     *
+     * @param _full true to drop and re-create all devices, false to only probe new or changed devices
+     * @return timing report for each probed device, in order of discovery
+     */
+    public List<DeviceRefreshReport> refreshDevices(boolean _full) {
+        synchronized (refreshLock) {
+            objectSnapshot.beginListing();
+            try {
+                return refreshDevicesInternal(_full);
+            } finally {
+                objectSnapshot.endListing();
+            }
+        }
+    }
+
+    private List<DeviceRefreshReport> refreshDevicesInternal(boolean _full) {
+        if (_full) {
+            devices.clear();
+        }
+        List<BluetoothDevice> candidates = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        // change marks consumed by this refresh, restored for every device which could not be probed
+        Set<String> consumedMarks = new HashSet<>();
+        for (BluetoothDevice device : getAssignedDevices()) {
+            present.add(device.getAddress());
+            boolean changed = changedDevices.remove(device.getAddress());
+            if (changed) {
+                consumedMarks.add(device.getAddress());
+            }
+            AbstractPaulmannDevice known = devices.get(device.getAddress());
+            if (!changed && known != null && Objects.equals(known.getDevice().getDbusPath(), device.getDbusPath())) {
+                continue; // known, unchanged and still on the same adapter
+            }
+            candidates.add(device);
+        }
+        List<AbstractPaulmannDevice> dropped = new ArrayList<>();
+        synchronized (devices) {
+            Iterator<Entry<String, AbstractPaulmannDevice>> it = devices.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry<String, AbstractPaulmannDevice> entry = it.next();
+                if (!present.contains(entry.getKey())) {
+                    dropped.add(entry.getValue());
+                    it.remove();
+                }
+            }
+        }
+        for (AbstractPaulmannDevice device : dropped) {
+            logger.debug("Device {} is gone", device.getDevice().getAddress());
+            ConnectionManager.getInstance().close(device.getDevice());
+        }
+
+        List<DeviceRefreshReport> reports = new ArrayList<>();
+        if (candidates.isEmpty()) {
+            return reports;
+        }
+
+        // each adapter has its own connection limit, so adapters do not slow down each other
+        Map<String, Semaphore> adapterLimits = new HashMap<>();
+        for (BluetoothDevice device : candidates) {
+            adapterLimits.computeIfAbsent(ConnectionManager.getAdapterPath(device), k -> new Semaphore(maxParallelConnections));
+        }
+        int poolSize = Math.min(maxParallelConnections * adapterLimits.size(), candidates.size());
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "paulmann-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<AbstractPaulmannDevice>> futures = new ArrayList<>();
+            for (BluetoothDevice device : candidates) {
+                DeviceRefreshReport report = new DeviceRefreshReport(device.getAddress(), getDeviceName(device));
+                reports.add(report);
+                Semaphore limit = adapterLimits.get(ConnectionManager.getAdapterPath(device));
+                futures.add(pool.submit(() -> {
+                    limit.acquire();
+                    try {
+                        return probeDevice(device, report);
+                    } finally {
+                        limit.release();
+                    }
+                }));
+            }
+            boolean created = false;
+            for (int i = 0; i < futures.size(); i++) {
+                AbstractPaulmannDevice paulmannDevice = awaitProbe(futures.get(i), reports.get(i));
+                if (paulmannDevice != null) {
+                    devices.put(reports.get(i).getMacAddr(), paulmannDevice);
+                    consumedMarks.remove(reports.get(i).getMacAddr());
+                    orphanedDevices.remove(reports.get(i).getMacAddr());
+                    created = true;
+                }
+            }
+            if (created) {
+                saveTopologyCache();
+            }
+        } finally {
+            pool.shutdownNow();
+            changedDevices.addAll(consumedMarks); // probe failed, keep the change for the next refresh
+        }
+        return reports;
+    }
+
+    /**
+     * Returns all supported devices, using one device object per MAC address.
+     * With multiple adapters, devices seen by more than one adapter are assigned by the {@link AdapterBalancer}.
+     *
+     * @return list of {@link BluetoothDevice}
+     */
+    private List<BluetoothDevice> getAssignedDevices() {
+        Map<String, List<BluetoothDevice>> candidates = new LinkedHashMap<>();
+        for (BluetoothDevice device : listKnownDevices(true)) {
+            candidates.computeIfAbsent(device.getAddress(), k -> new ArrayList<>()).add(device);
+        }
+        return adapterBalancer.assign(candidates);
+    }
+
+    /**
+     * Balancer used to assign devices to bluetooth adapters.
+     *
+     * @return {@link AdapterBalancer}
+     */
+    public AdapterBalancer getAdapterBalancer() {
+        return adapterBalancer;
+    }
+
+    /**
+     * Setup the file used to persist the GATT layout of all known devices.
+     * The file is updated after each refresh which created new devices.
+     *
+     * @param _file cache file, null to disable the cache
+     * @see #loadDevicesFromCache()
+     */
+    public void setTopologyCacheFile(Path _file) {
+        topologyCache = _file == null ? null : new DeviceTopologyCache(_file);
+    }
+
+    /**
+     * Write the GATT layout of all current devices to the topology cache file (if configured).
+     */
+    public void saveTopologyCache() {
+        DeviceTopologyCache cache = topologyCache;
+        if (cache != null) {
+            List<TopologyEntry> entries = new ArrayList<>();
+            for (String macAddr : getDevices().keySet()) {
+                TopologyEntry entry = topologyEntries.get(macAddr);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            cache.save(entries);
+        }
+    }
+
+    /**
+     * Re-creates all devices stored in the topology cache file without connecting to them.
+     * <br>
+     * Only devices which are still known by bluez are restored. The restored layouts are validated
+     * in the background; devices which changed are probed again by an incremental refresh.
+     *
+     * @return number of restored devices
+     * @see #setTopologyCacheFile(Path)
+     */
+    public int loadDevicesFromCache() {
+        DeviceTopologyCache cache = topologyCache;
+        if (cache == null) {
+            return 0;
+        }
+        TimeMeasure tm = new TimeMeasure();
+        // a device seen by multiple adapters has one object per adapter, use the one the cached service belongs to
+        Map<String, BluetoothDevice> known = new HashMap<>();
+        for (BluetoothDevice device : listKnownDevices(false)) {
+            known.put(device.getDbusPath(), device);
+        }
+
+        Map<TopologyEntry, AbstractPaulmannDevice> restored = new LinkedHashMap<>();
+        for (TopologyEntry entry : cache.load()) {
+            String servicePath = entry.getServicePath();
+            int idx = servicePath == null ? -1 : servicePath.lastIndexOf('/');
+            BluetoothDevice device = idx < 0 ? null : known.get(servicePath.substring(0, idx));
+            if (device == null || !entry.getMacAddr().equalsIgnoreCase(device.getAddress())) {
+                logger.debug("Cached device {} is unknown to bluez on adapter of {}, ignoring", entry.getMacAddr(), servicePath);
+                continue;
+            }
+            AbstractPaulmannDevice paulmannDevice = cache.restore(entry, device, manager.getDbusConnection());
+            if (paulmannDevice != null) {
+                devices.put(entry.getMacAddr(), paulmannDevice);
+                topologyEntries.put(entry.getMacAddr(), entry);
+                restored.put(entry, paulmannDevice);
+            }
+        }
+        logger.debug("PERF: Restoring {} devices from topology cache took {} ms", restored.size(), tm.getElapsed());
+
+        if (!restored.isEmpty()) {
+            Thread validation = new Thread(() -> validateCachedDevices(restored), "paulmann-topology-validation");
+            validation.setDaemon(true);
+            validation.start();
+        }
+        return restored.size();
+    }
+
+    /**
+     * Compares the restored layouts with the real devices and re-probes devices which have changed.
+     *
+     * @param _restored map of cache entry / restored device
+     */
+    private void validateCachedDevices(Map<TopologyEntry, AbstractPaulmannDevice> _restored) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(maxParallelConnections, _restored.size()), r -> {
+            Thread t = new Thread(r, "paulmann-topology-validation");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Map<String, Future<Boolean>> results = new LinkedHashMap<>();
+            for (Entry<TopologyEntry, AbstractPaulmannDevice> entry : _restored.entrySet()) {
+                results.put(entry.getKey().getMacAddr(), pool.submit(() -> isLayoutUnchanged(entry.getKey(), entry.getValue())));
+            }
+            boolean changed = false;
+            for (Entry<String, Future<Boolean>> result : results.entrySet()) {
+                try {
+                    if (!result.getValue().get(refreshDeviceTimeout, TimeUnit.MILLISECONDS)) {
+                        logger.info("Layout of device {} has changed, device will be probed again", result.getKey());
+                        changedDevices.add(result.getKey());
+                        changed = true;
+                    }
+                } catch (TimeoutException | ExecutionException _ex) {
+                    result.getValue().cancel(true);
+                } catch (InterruptedException _ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (changed) {
+                refreshDevices(false);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Connects to the device and checks if its GATT layout still matches the cached layout.
+     *
+     * @param _entry cached layout
+     * @param _device restored device
+     * @return true if layout is unchanged or device could not be reached, false if layout differs
+     */
+    private boolean isLayoutUnchanged(TopologyEntry _entry, AbstractPaulmannDevice _device) {
+        DeviceSession session = ConnectionManager.getInstance().getSession(_device.getDevice());
+        try {
+            return session.executeQueued(CommandPriority.BACKGROUND, () -> {
+                for (BluetoothGattService gattService : _device.getDevice().getGattServices()) {
+                    if (_entry.getServicePath().equals(gattService.getDbusPath())) {
+                        return _entry.equals(TopologyEntry.of(_entry.getMacAddr(), _entry.getAlias(), gattService.getUuid(), gattService));
+                    }
+                }
+                return false;
+            });
+        } catch (Exception _ex) {
+            logger.debug("Could not validate cached device {}, keeping cached layout", _entry.getMacAddr());
+            return true;
+        }
+    }
+
+    /**
+     * Connects to the device and creates the {@link AbstractPaulmannDevice} instance.
+     *
+     * @param _device device to probe
+     * @param _report report to fill with timings
+     * @return created device or null
+     */
+    private AbstractPaulmannDevice probeDevice(BluetoothDevice _device, DeviceRefreshReport _report) {
+        _report.started();
+        long deadline = _report.startedAt + refreshDeviceTimeout;
+        TimeMeasure tm = new TimeMeasure();
+        // connection is kept open by the session, so following feature calls do not have to reconnect
+        DeviceSession session = ConnectionManager.getInstance().getSession(_device);
+        try {
+            AbstractPaulmannDevice created = session.executeQueued(CommandPriority.AUTOMATION, () -> {
+                _report.connectMs = tm.getElapsed();
+                logger.debug("PERF: {} Connection establishment took {} ms", _device.getAddress(), _report.connectMs);
+                if (System.currentTimeMillis() >= deadline) { // connect took too long, caller has given up
+                    return null;
+                }
+                AbstractPaulmannDevice result = null;
+                String alias = _device.getAlias();
+                List<BluetoothGattService> services = _device.getGattServices();
+                for (BluetoothGattService gattService : services) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        return null;
+                    }
+                    String serviceUuid = gattService.getUuid();
+                    if (!serviceUuid.toUpperCase().startsWith("0000FFB")) { // skip all non-paulmann services
+                        continue;
+                    }
+                    _report.servicesMs = tm.getElapsed() - _report.connectMs;
+                    logger.debug("PERF: {} Filtering services took {} ms", _device.getAddress(), tm.getElapsed());
+                    AbstractPaulmannDevice paulmannDevice = DeviceFactory.getInstance().createDevice(alias, gattService);
+                    if (paulmannDevice != null) {
+                        _report.creationMs = tm.getElapsed() - _report.connectMs - _report.servicesMs;
+                        logger.debug("PERF: {} Device creation took {} ms", _device.getAddress(), tm.getElapsed());
+                        if (topologyCache != null) { // still connected, layout is stored with the next cache update
+                            topologyEntries.put(_report.getMacAddr(),
+                                    TopologyEntry.of(_report.getMacAddr(), alias, serviceUuid, gattService));
                         }
+                        result = paulmannDevice;
+                    } else {
+                        logger.warn("Unable to create device for device={}, gattService={}",
+                                describe(_device), ToStringHelper.toString(gattService));
                     }
-                    device.disconnect();
-                    logger.debug("PERF: Disconnection took {} ms", tm.getElapsed());
                 }
-            } catch (Exception _ex) {
-                logger.debug("Cannot connect to device {} ({}), it seems to be offline", device.getName(),
-                        device.getAddress());
+                return result;
+            }, Math.max(0, deadline - System.currentTimeMillis()));
+            logger.debug("PERF: {} Releasing connection took {} ms", _device.getAddress(), tm.getElapsed());
+            _report.finished(created != null ? RefreshStatus.CREATED : RefreshStatus.NOT_CREATED, null, tm.getElapsed());
+            return created;
+        } catch (TimeoutException _ex) {
+            logger.debug("Refreshing device {} took longer than {} ms, skipping", _report.getMacAddr(), refreshDeviceTimeout);
+            _report.finished(RefreshStatus.TIMEOUT, null, tm.getElapsed());
+            return null;
+        } catch (InterruptedException _ex) { // cancelled by awaitProbe, report is already finished
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception _ex) {
+            logger.debug("Cannot connect to device {} ({}), it seems to be offline", getDeviceName(_device),
+                    _device.getAddress());
+            _report.finished(RefreshStatus.OFFLINE, _ex.getMessage(), tm.getElapsed());
+            return null;
+        }
+    }
+
+    /**
+     * Wait for a device probe to finish.
+     * The probe is cancelled if it runs longer than the configured device timeout.
+     * Cancelling interrupts the wait of the probe, so its connection slot is released right away
+     * (see {@link DeviceSession#executeQueued(CommandPriority, com.github.hypfvieh.paulmann.connection.DeviceOperation, long)}).
+     *
+     * @param _future probe result
+     * @param _report report of the probed device
+     * @return created device or null
+     */
+    private AbstractPaulmannDevice awaitProbe(Future<AbstractPaulmannDevice> _future, DeviceRefreshReport _report) {
+        while (true) {
+            long waitMs = 100; // probe was not started yet, check again later
+            long startedAt = _report.startedAt;
+            if (startedAt > 0) {
+                waitMs = startedAt + refreshDeviceTimeout - System.currentTimeMillis();
+                if (waitMs <= 0) {
+                    _future.cancel(true);
+                    logger.debug("Refreshing device {} took longer than {} ms, skipping", _report.getMacAddr(),
+                            refreshDeviceTimeout);
+                    _report.finished(RefreshStatus.TIMEOUT, null, System.currentTimeMillis() - startedAt);
+                    return null;
+                }
+            }
+            try {
+                return _future.get(waitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException _ex) {
+                continue;
+            } catch (InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+                _future.cancel(true);
+                return null;
+            } catch (ExecutionException _ex) {
+                _report.finished(RefreshStatus.OFFLINE, _ex.getCause().getMessage(), 0);
+                return null;
             }
         }
     }
 
+    /**
+     * Setup how many devices will be connected in parallel per bluetooth adapter while refreshing devices.
+     * Most bluetooth adapters only support a limited amount of simultaneous LE connections.
+     *
+     * @param _maxParallelConnections maximum connections, at least 1
+     */
+    public void setMaxParallelConnections(int _maxParallelConnections) {
+        maxParallelConnections = Math.max(1, _maxParallelConnections);
+    }
+
+    /**
+     * Maximum number of devices connected in parallel per bluetooth adapter while refreshing devices.
+     *
+     * @return int
+     */
+    public int getMaxParallelConnections() {
+        return maxParallelConnections;
+    }
+
+    /**
+     * Setup the time in milliseconds a single device may take to be refreshed.
+     *
+     * @param _timeoutMs timeout in milliseconds
+     */
+    public void setRefreshDeviceTimeout(long _timeoutMs) {
+        refreshDeviceTimeout = _timeoutMs;
+    }
+
+    /**
+     * Time in milliseconds a single device may take to be refreshed.
+     *
+     * @return timeout
+     */
+    public long getRefreshDeviceTimeout() {
+        return refreshDeviceTimeout;
+    }
+
     /**
      * Returns a list of all devices which could be managed by {@link PaulmannDeviceController}.
      *
      * @return unmodifiable map of macaddress / {@link AbstractPaulmannDevice}
      */
     public Map<String, AbstractPaulmannDevice> getDevices() {
-        if (devices == null || devices.isEmpty()) {
-            Collections.unmodifiableMap(new HashMap<>());
+        synchronized (devices) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(devices));
         }
-        return Collections.unmodifiableMap(devices);
+    }
+
+    /**
+     * Creates a {@link DeviceGroup} containing all current devices.
+     *
+     * @return new {@link DeviceGroup}
+     */
+    public DeviceGroup createDeviceGroup() {
+        return new DeviceGroup(getDevices().values());
+    }
+
+    /**
+     * Service keeping the clocks of all devices in sync.
+     * The service has to be started by {@link ClockSyncService#start()}.
+     *
+     * @return {@link ClockSyncService}
+     */
+    public ClockSyncService getClockSyncService() {
+        return clockSync;
     }
 
     /**
      * De-initializes all devices, features and bluetooth adapter connections.
      */
     public void deinitialize() {
-        if (devices != null && !devices.isEmpty()) {
-            for (AbstractPaulmannDevice device : devices.values()) {
-                if (device.getDevice().isConnected()) {
-                    device.getDevice().disconnect();
-                }
-            }
-            devices.clear();
-        }
+        clockSync.stop();
+        ConnectionManager.getInstance().closeAll();
+        devices.clear();
+        changedDevices.clear();
+        orphanedDevices.clear();
+        topologyEntries.clear();
         manager.closeConnection();
     }
 
+    /**
+     * Setup the time in milliseconds an unused device connection is kept open.
+     * Use 0 to disconnect right after each read/write operation.
+     *
+     * @param _idleTimeoutMs timeout in milliseconds
+     */
+    public void setConnectionIdleTimeout(long _idleTimeoutMs) {
+        ConnectionManager.getInstance().setIdleTimeout(_idleTimeoutMs);
+    }
+
     /**
      * Setup the default bluetooth adapter to use.
      *
@@ -195,21 +788,122 @@ public class PaulmannDeviceController {
      *
      * @param _showUnsupported also list unsupported devices
      * @return list of {@link DeviceDetails}, maybe empty but never null
+     * @see #listAllRawDevices(boolean, Consumer)
      */
     public List<DeviceDetails> listAllRawDevices(boolean _showUnsupported) {
+        return listAllRawDevices(_showUnsupported, null);
+    }
+
+    /**
+     * List all found devices raw information including their GATT services and characteristics.
+     * <br>
+     * Up to {@link #getMaxParallelConnections()} devices are connected at the same time.
+     * Each result is passed to the given listener as soon as the device is done. The listener is never called
+     * concurrently, but it is called from worker threads.
+     *
+     * @param _showUnsupported also list unsupported devices
+     * @param _listener called for every finished device, maybe null
+     * @return list of {@link DeviceDetails} in order of discovery, maybe empty but never null
+     */
+    public List<DeviceDetails> listAllRawDevices(boolean _showUnsupported, Consumer<DeviceDetails> _listener) {
+        objectSnapshot.beginListing();
+        try {
+            return listAllRawDevicesInternal(_showUnsupported, _listener);
+        } finally {
+            objectSnapshot.endListing();
+        }
+    }
+
+    private List<DeviceDetails> listAllRawDevicesInternal(boolean _showUnsupported, Consumer<DeviceDetails> _listener) {
+        List<BluetoothDevice> selected = listKnownDevices(!_showUnsupported);
         List<DeviceDetails> devLst = new ArrayList<>();
+        if (selected.isEmpty()) {
+            return devLst;
+        }
 
-        for (BluetoothDevice dev : manager.getDevices()) {
-            if (!_showUnsupported && SUPPORTED_DEVICES.contains(dev.getName())) {
-                devLst.add(new DeviceDetails(dev));
-            } else if (_showUnsupported) {
-                devLst.add(new DeviceDetails(dev));
+        Object listenerLock = new Object();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(maxParallelConnections, selected.size()), r -> {
+            Thread t = new Thread(r, "paulmann-device-details");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<DeviceDetails>> futures = new ArrayList<>();
+            for (BluetoothDevice dev : selected) {
+                futures.add(pool.submit(() -> {
+                    DeviceDetails details = new DeviceDetails(dev, objectSnapshot.getDevice(dev.getDbusPath()));
+                    if (_listener != null) {
+                        synchronized (listenerLock) {
+                            try {
+                                _listener.accept(details);
+                            } catch (Exception _ex) {
+                                logger.warn("Device details listener failed.", _ex);
+                            }
+                        }
+                    }
+                    return details;
+                }));
             }
+            for (Future<DeviceDetails> future : futures) {
+                try {
+                    devLst.add(future.get());
+                } catch (ExecutionException _ex) {
+                    logger.debug("Could not read device details", _ex.getCause());
+                }
+            }
+        } catch (InterruptedException _ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
         }
+        return devLst;
+    }
 
+    /**
+     * List the information bluez has cached for all found devices.
+     * <br>
+     * No device is connected, so GATT services and characteristics are not included.
+     * This is much faster than {@link #listAllRawDevices(boolean)}.
+     *
+     * @param _showUnsupported also list unsupported devices
+     * @return list of {@link DeviceDetails}, maybe empty but never null
+     */
+    public List<DeviceDetails> listDeviceInventory(boolean _showUnsupported) {
+        List<DeviceDetails> devLst = new ArrayList<>();
+        for (DeviceSnapshot dev : objectSnapshot.getDevices()) {
+            if (_showUnsupported || isSupportedDevice(dev.getName())) {
+                devLst.add(new DeviceDetails(dev));
+            }
+        }
         return devLst;
     }
 
+
+    /**
+     * Name of the given device, read from the bluez object snapshot if possible.
+     *
+     * @param _device device
+     * @return name, maybe null
+     */
+    private String getDeviceName(BluetoothDevice _device) {
+        DeviceSnapshot snapshot = objectSnapshot.getDevice(_device.getDbusPath());
+        return snapshot != null ? snapshot.getName() : _device.getName();
+    }
+
+    private String describe(BluetoothDevice _device) {
+        DeviceSnapshot snapshot = objectSnapshot.getDevice(_device.getDbusPath());
+        return snapshot != null ? ToStringHelper.toString(snapshot) : ToStringHelper.toString(_device);
+    }
+
+    /**
+     * Properties of all bluez objects, fetched in one call and kept up to date by bluez signals.
+     *
+     * @return {@link BluezObjectSnapshot}
+     */
+    public BluezObjectSnapshot getObjectSnapshot() {
+        return objectSnapshot;
+    }
+
     /**
      * Registers a signal handler.
      *
@@ -226,6 +920,258 @@ public class PaulmannDeviceController {
         }
     }
 
+    /**
+     * Check if the given device name belongs to a device supported by the {@link DeviceFactory}.
+     *
+     * @param _name device name
+     * @return true if supported
+     */
+    private static boolean isSupportedDevice(String _name) {
+        return DeviceFactory.getInstance().isSupported(_name);
+    }
+
+    /**
+     * Extracts the MAC address from a bluez device object path (e.g. /org/bluez/hci0/dev_00_11_22_33_44_55).
+     *
+     * @param _path object path
+     * @return MAC address or null if path is not a device path
+     */
+    static String macFromDevicePath(String _path) {
+        if (_path == null) {
+            return null;
+        }
+        int idx = _path.lastIndexOf("/dev_");
+        if (idx < 0 || _path.indexOf('/', idx + 1) >= 0) {
+            return null; // not a device, or a child object (e.g. gatt service) of a device
+        }
+        return _path.substring(idx + 5).replace('_', ':');
+    }
+
+    /**
+     * Moves all devices of a removed adapter to the remaining adapters.
+     * <br>
+     * Bluez removes the devices of an adapter before the adapter itself, so the devices
+     * already removed from the registry by {@link DeviceTracker} are re-probed as well.
+     *
+     * @param _adapterPath object path of the removed adapter
+     */
+    private void rebalance(String _adapterPath) {
+        Set<String> orphaned = new LinkedHashSet<>(adapterBalancer.adapterRemoved(_adapterPath));
+        Iterator<Entry<String, String>> it = orphanedDevices.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<String, String> entry = it.next();
+            if (_adapterPath.equals(entry.getValue())) {
+                orphaned.add(entry.getKey());
+                it.remove();
+            }
+        }
+        if (orphaned.isEmpty()) {
+            return;
+        }
+        logger.info("Adapter {} was removed, reassigning {} devices", _adapterPath, orphaned.size());
+        for (String mac : orphaned) {
+            AbstractPaulmannDevice removed = devices.remove(mac);
+            if (removed != null) {
+                ConnectionManager.getInstance().close(removed.getDevice());
+            }
+            changedDevices.add(mac);
+        }
+        Thread refresh = new Thread(() -> refreshDevices(false), "paulmann-rebalance");
+        refresh.setDaemon(true);
+        refresh.start();
+    }
+
+    /**
+     * Keeps the device registry up to date with the changes announced by bluez.
+     * <br>
+     * Added devices and devices whose identity (name, alias, services) changed are marked for probing on the next refresh.
+     * Removed devices are dropped from the registry but keep their change mark, so they are probed again by the
+     * next refresh if another adapter still sees them. Devices of removed adapters are reassigned.
+     */
+    private class DeviceTracker implements BluezObjectListener {
+        @Override
+        public void interfacesAdded(String _path, Collection<String> _interfaces) {
+            if (!_interfaces.contains(BLUEZ_DEVICE_INTERFACE)) {
+                return;
+            }
+            String mac = macFromDevicePath(_path);
+            if (mac != null) {
+                logger.debug("Device {} was added", mac);
+                orphanedDevices.remove(mac);
+                changedDevices.add(mac);
+            }
+        }
+
+        @Override
+        public void interfacesRemoved(String _path, Collection<String> _interfaces) {
+            if (_interfaces.contains(BLUEZ_ADAPTER_INTERFACE)) {
+                rebalance(_path);
+                return;
+            }
+            if (!_interfaces.contains(BLUEZ_DEVICE_INTERFACE)) {
+                return;
+            }
+            String mac = macFromDevicePath(_path);
+            if (mac == null) {
+                return;
+            }
+            AbstractPaulmannDevice removed;
+            synchronized (devices) {
+                removed = devices.get(mac);
+                if (removed != null && !_path.equals(removed.getDevice().getDbusPath())) {
+                    return; // device is used through another adapter
+                }
+                adapterBalancer.deviceRemoved(mac);
+                devices.remove(mac);
+            }
+            if (removed != null) {
+                logger.debug("Device {} was removed", mac);
+                orphanedDevices.put(mac, ConnectionManager.getAdapterPath(removed.getDevice()));
+                changedDevices.add(mac);
+                ConnectionManager.getInstance().close(removed.getDevice());
+            }
+        }
+
+        @Override
+        public void propertiesChanged(String _path, String _interface, Collection<String> _properties) {
+            if (!BLUEZ_DEVICE_INTERFACE.equals(_interface)) {
+                return;
+            }
+            if (_properties.contains("Name") || _properties.contains("Alias") || _properties.contains("UUIDs")) {
+                String mac = macFromDevicePath(_path);
+                if (mac != null) {
+                    logger.debug("Device {} has changed", mac);
+                    changedDevices.add(mac);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bluetooth device created from the bluez object snapshot.
+     * The MAC address never changes, so it is returned from the snapshot instead of querying DBus.
+     */
+    private static class SnapshotBluetoothDevice extends BluetoothDevice {
+        private final String address;
+
+        SnapshotBluetoothDevice(Device1 _device, BluetoothAdapter _adapter, DeviceSnapshot _snapshot, DBusConnection _connection) {
+            super(_device, _adapter, _snapshot.getPath(), _connection);
+            address = _snapshot.getAddress();
+        }
+
+        @Override
+        public String getAddress() {
+            return address;
+        }
+    }
+
+    /**
+     * Result of refreshing a single device.
+     */
+    public static enum RefreshStatus {
+        /** Refresh still running. */
+        PENDING,
+        /** Device instance was created. */
+        CREATED,
+        /** Device was connected, but no device instance could be created. */
+        NOT_CREATED,
+        /** Device could not be connected. */
+        OFFLINE,
+        /** Refresh took longer than the configured device timeout. */
+        TIMEOUT;
+    }
+
+    /**
+     * Timing information collected while refreshing a single device.
+     *
+     * @author David M.
+     */
+    public static class DeviceRefreshReport {
+        private final String macAddr;
+        private final String name;
+
+        private volatile long startedAt;
+        private volatile long connectMs;
+        private volatile long servicesMs;
+        private volatile long creationMs;
+        private volatile long totalMs;
+        private volatile RefreshStatus status = RefreshStatus.PENDING;
+        private volatile String error;
+
+        DeviceRefreshReport(String _macAddr, String _name) {
+            macAddr = _macAddr;
+            name = _name;
+        }
+
+        void started() {
+            startedAt = System.currentTimeMillis();
+        }
+
+        synchronized void finished(RefreshStatus _status, String _error, long _totalMs) {
+            if (status != RefreshStatus.PENDING) {
+                return; // already timed out
+            }
+            status = _status;
+            error = _error;
+            totalMs = _totalMs;
+        }
+
+        public String getMacAddr() {
+            return macAddr;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Time in milliseconds to establish the connection.
+         * @return long
+         */
+        public long getConnectMs() {
+            return connectMs;
+        }
+
+        /**
+         * Time in milliseconds to enumerate and filter the GATT services.
+         * @return long
+         */
+        public long getServicesMs() {
+            return servicesMs;
+        }
+
+        /**
+         * Time in milliseconds to create the device instance.
+         * @return long
+         */
+        public long getCreationMs() {
+            return creationMs;
+        }
+
+        /**
+         * Overall time in milliseconds spent for this device.
+         * @return long
+         */
+        public long getTotalMs() {
+            return totalMs;
+        }
+
+        public RefreshStatus getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "DeviceRefreshReport [macAddr=" + macAddr + ", name=" + name + ", status=" + status + ", connectMs="
+                    + connectMs + ", servicesMs=" + servicesMs + ", creationMs=" + creationMs + ", totalMs=" + totalMs
+                    + ", error=" + error + "]";
+        }
+    }
+
     /**
      * Meta-Information class with all read properties of a bluetooth device.
      *
@@ -246,19 +1192,49 @@ public class PaulmannDeviceController {
 
         private boolean supported;
 
+        private final boolean detailed;
+
         public DeviceDetails(BluetoothDevice _dev) {
-            macAddr = _dev.getAddress();
-            name = _dev.getName();
-            alias = _dev.getAlias();
-            for (String uuid : _dev.getUuids()) {
-                uuids.add(uuid);
-            }
-            supported = SUPPORTED_DEVICES.contains(_dev.getName());
+            this(_dev, null);
+        }
 
-            try {
-                if (_dev.connect()) {
+        /**
+         * Reads the properties cached by bluez, no connection is established.
+         *
+         * @param _snapshot device properties
+         */
+        DeviceDetails(DeviceSnapshot _snapshot) {
+            detailed = false;
+            readProperties(_snapshot);
+        }
 
+        /**
+         * Connects the device and reads its services and characteristics.
+         * Unsupported devices are disconnected right afterwards.
+         *
+         * @param _dev device
+         * @param _snapshot device properties, null to read them from the device
+         */
+        DeviceDetails(BluetoothDevice _dev, DeviceSnapshot _snapshot) {
+            detailed = true;
+            try {
+                if (_snapshot != null) {
+                    readProperties(_snapshot);
+                } else {
+                    macAddr = _dev.getAddress();
+                    name = _dev.getName();
+                    alias = _dev.getAlias();
+                    String[] devUuids = _dev.getUuids();
+                    if (devUuids != null) {
+                        uuids.addAll(Arrays.asList(devUuids));
+                    }
+                    supported = isSupportedDevice(name);
+                    modAlias = _dev.getModAlias();
+                    appearance = _dev.getAppearance() + "";
+                    btClass = _dev.getBluetoothClass() + "";
+                }
 
+                ConnectionManager.getInstance().getSession(_dev).executeQueued(CommandPriority.AUTOMATION, () -> {
                     for (BluetoothGattService bluetoothGattService : _dev.getGattServices()) {
                         ArrayList<String> charUuids = new ArrayList<>();
                         for (BluetoothGattCharacteristic bluetoothGattCharacteristic : bluetoothGattService
@@ -267,19 +1243,38 @@ public class PaulmannDeviceController {
                         }
                         servicesAndCharacteristics.put(bluetoothGattService.getUuid(), charUuids);
                     }
-
-                    modAlias = _dev.getModAlias();
-                    appearance = _dev.getAppearance() + "";
-                    btClass = _dev.getBluetoothClass() + "";
-
-                    _dev.disconnect();
-
-                }
+                    return null;
+                });
             } catch (Exception _ex) {
                 error = _ex.getMessage();
+            } finally {
+                if (!supported) {
+                    // foreign devices are not controlled later, do not keep them connected
+                    ConnectionManager.getInstance().close(_dev);
+                }
             }
         }
 
+        private void readProperties(DeviceSnapshot _snapshot) {
+            macAddr = _snapshot.getAddress();
+            name = _snapshot.getName();
+            alias = _snapshot.getAlias();
+            uuids.addAll(Arrays.asList(_snapshot.getUuids()));
+            supported = isSupportedDevice(name);
+            modAlias = _snapshot.getModAlias();
+            appearance = _snapshot.getAppearance() + "";
+            btClass = _snapshot.getBluetoothClass() + "";
+        }
+
+        /**
+         * Check if services and characteristics were read from the connected device.
+         *
+         * @return false if only cached properties were read
+         */
+        public boolean isDetailed() {
+            return detailed;
+        }
+
         public String getMacAddr() {
             return macAddr;
         }
@@ -0,0 +1,213 @@
+package com.github.hypfvieh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.hypfvieh.BluezObjectSnapshot.DeviceSnapshot;
+import com.github.hypfvieh.bluetooth.DiscoveryFilter;
+import com.github.hypfvieh.bluetooth.DiscoveryTransport;
+import com.github.hypfvieh.paulmann.devices.DeviceFactory;
+
+/**
+ * Settings used by {@link PaulmannDeviceController#scanForDevices(ScanProfile)}.
+ * <br>
+ * By default only bluetooth low energy devices with the name of a supported Paulmann device are reported
+ * and the scan runs for {@link PaulmannDeviceController#DEFAULT_SCAN_TIMEOUT_SEC} seconds.
+ * If expected devices are set, the scan ends as soon as all of them have been seen.
+ *
+ * @author David M.
+ */
+public class ScanProfile {
+
+    private int timeoutSec = PaulmannDeviceController.DEFAULT_SCAN_TIMEOUT_SEC;
+    private boolean leOnly = true;
+    private boolean supportedOnly = true;
+    private List<String> namePrefixes = new ArrayList<>();
+    private Short rssiFloor;
+    private final Set<String> expectedDevices = new LinkedHashSet<>();
+
+    /**
+     * Maximum time to scan in seconds.
+     *
+     * @param _timeoutSec timeout, values below 1 will use the default
+     * @return this
+     */
+    public ScanProfile setTimeout(int _timeoutSec) {
+        timeoutSec = _timeoutSec > 0 ? _timeoutSec : PaulmannDeviceController.DEFAULT_SCAN_TIMEOUT_SEC;
+        return this;
+    }
+
+    public int getTimeout() {
+        return timeoutSec;
+    }
+
+    /**
+     * Only scan for bluetooth low energy devices (default true).
+     *
+     * @param _leOnly true to ignore classic (BR/EDR) devices
+     * @return this
+     */
+    public ScanProfile setLeOnly(boolean _leOnly) {
+        leOnly = _leOnly;
+        return this;
+    }
+
+    public boolean isLeOnly() {
+        return leOnly;
+    }
+
+    /**
+     * Only report devices whose name or alias starts with the alias of a supported device (default true).
+     *
+     * @param _supportedOnly true to ignore all unsupported devices
+     * @return this
+     */
+    public ScanProfile setSupportedOnly(boolean _supportedOnly) {
+        supportedOnly = _supportedOnly;
+        return this;
+    }
+
+    public boolean isSupportedOnly() {
+        return supportedOnly;
+    }
+
+    /**
+     * Only report devices whose name or alias starts with one of the given prefixes.
+     * Replaces the supported device aliases used by {@link #setSupportedOnly(boolean)}.
+     *
+     * @param _prefixes prefixes, none to use the supported device aliases
+     * @return this
+     */
+    public ScanProfile setNamePrefixes(String... _prefixes) {
+        namePrefixes = _prefixes == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(_prefixes));
+        return this;
+    }
+
+    public List<String> getNamePrefixes() {
+        return Collections.unmodifiableList(namePrefixes);
+    }
+
+    /**
+     * Ignore devices with a weaker signal than the given RSSI.
+     *
+     * @param _rssiFloor minimum RSSI in dBm (e.g. -80), null to report devices regardless of signal strength
+     * @return this
+     */
+    public ScanProfile setRssiFloor(Short _rssiFloor) {
+        rssiFloor = _rssiFloor;
+        return this;
+    }
+
+    public Short getRssiFloor() {
+        return rssiFloor;
+    }
+
+    /**
+     * Setup the devices to scan for. The scan ends as soon as all of them have been seen.
+     * Other devices are not reported.
+     *
+     * @param _macAddresses MAC addresses of expected devices, empty to report all matching devices
+     * @return this
+     */
+    public ScanProfile setExpectedDevices(Collection<String> _macAddresses) {
+        expectedDevices.clear();
+        if (_macAddresses != null) {
+            for (String mac : _macAddresses) {
+                if (mac != null) {
+                    expectedDevices.add(mac.toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        return this;
+    }
+
+    public Set<String> getExpectedDevices() {
+        return Collections.unmodifiableSet(expectedDevices);
+    }
+
+    /**
+     * Discovery filter passed to bluez, so unwanted devices are filtered by the adapter.
+     *
+     * @return map, maybe empty
+     */
+    Map<DiscoveryFilter, Object> toDiscoveryFilter() {
+        Map<DiscoveryFilter, Object> filter = new LinkedHashMap<>();
+        filter.put(DiscoveryFilter.Transport, leOnly ? DiscoveryTransport.LE : DiscoveryTransport.AUTO);
+        if (rssiFloor != null) {
+            filter.put(DiscoveryFilter.RSSI, rssiFloor);
+        }
+        return filter;
+    }
+
+    /**
+     * Check if the given device should be reported by the scan.
+     * The adapter filter is not applied to all adapters, so all criteria are checked again.
+     *
+     * @param _device properties of a device found by scan
+     * @return true if device matches
+     */
+    boolean matches(DeviceSnapshot _device) {
+        String mac = _device.getAddress();
+        if (mac == null || !expectedDevices.isEmpty() && !expectedDevices.contains(mac.toUpperCase(Locale.ROOT))) {
+            return false;
+        }
+        if (leOnly && _device.getBluetoothClass() != null) {
+            return false; // only classic devices report a device class
+        }
+        if (rssiFloor != null) {
+            Short rssi = _device.getRssi();
+            if (rssi == null || rssi < rssiFloor) {
+                return false;
+            }
+        }
+        List<String> prefixes = namePrefixes;
+        if (prefixes.isEmpty() && supportedOnly) {
+            prefixes = DeviceFactory.getInstance().getSupportedAliases();
+        }
+        return prefixes.isEmpty() || startsWithAny(_device.getName(), prefixes) || startsWithAny(_device.getAlias(), prefixes);
+    }
+
+    /**
+     * Check if all expected devices were found.
+     *
+     * @param _found MAC addresses of devices which announced themselves during the scan
+     * @return true if expected devices are configured and all of them were found
+     */
+    boolean isComplete(Collection<String> _found) {
+        if (expectedDevices.isEmpty()) {
+            return false;
+        }
+        Set<String> missing = new LinkedHashSet<>(expectedDevices);
+        for (String mac : _found) {
+            missing.remove(mac.toUpperCase(Locale.ROOT));
+        }
+        return missing.isEmpty();
+    }
+
+    private static boolean startsWithAny(String _name, List<String> _prefixes) {
+        if (_name == null) {
+            return false;
+        }
+        for (String prefix : _prefixes) {
+            if (_name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [timeoutSec=" + timeoutSec + ", leOnly=" + leOnly + ", supportedOnly="
+                + supportedOnly + ", namePrefixes=" + namePrefixes + ", rssiFloor=" + rssiFloor + ", expectedDevices="
+                + expectedDevices + "]";
+    }
+}
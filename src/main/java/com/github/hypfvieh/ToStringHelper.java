@@ -2,6 +2,7 @@ package com.github.hypfvieh;
 
 import java.util.List;
 
+import com.github.hypfvieh.BluezObjectSnapshot.DeviceSnapshot;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattDescriptor;
@@ -47,6 +48,33 @@ public class ToStringHelper {
         return sb.toString();
     }
 
+    /**
+     * Create a string of the key information of a device using the properties cached by bluez.
+     * Unlike {@link #toString(BluetoothDevice)} this does not query the device properties over D-Bus.
+     *
+     * @param _device properties of the device
+     * @return String, maybe null
+     */
+    public static String toString(DeviceSnapshot _device) {
+        if (_device == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(BluetoothDevice.class.getSimpleName());
+        sb.append(" [");
+        sb.append("MAC: ").append(_device.getAddress());
+        sb.append(", Alias: ").append(_device.getAlias());
+        sb.append(", Name: ").append(_device.getName());
+        sb.append(", Connected: ").append(_device.isConnected());
+        sb.append(", Paired: ").append(_device.isPaired());
+        sb.append(", UUIDs: { ");
+        sb.append(String.join(",", _device.getUuids()));
+        sb.append("} ]");
+
+        return sb.toString();
+    }
+
     /**
      * Read key information from {@link BluetoothGattService} and return it as String.
      *
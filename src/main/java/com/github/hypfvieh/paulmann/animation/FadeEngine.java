@@ -0,0 +1,270 @@
+package com.github.hypfvieh.paulmann.animation;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.paulmann.connection.CommandPriority;
+import com.github.hypfvieh.paulmann.features.AbstractByteValFeature;
+import com.github.hypfvieh.paulmann.features.AbstractFeature;
+import com.github.hypfvieh.paulmann.features.AbstractIntValFeature;
+import com.github.hypfvieh.paulmann.features.AbstractPredefinedIntValFeature;
+import com.github.hypfvieh.paulmann.features.AbstractPredefinedIntValFeature.PredefinedValue;
+
+/**
+ * Host driven smooth fades for value based features like brightness and color temperature.
+ * <br>
+ * Each fade is planned as {@link FadeSchedule} from the levels supported by the feature and the
+ * measured write latency of the device. The next step is only sent after the previous write finished,
+ * steps which are already overdue at that time are skipped, so a slow device never receives stale values.
+ * <br>
+ * Only one fade per feature is active. Starting a new fade cancels the running one and continues from
+ * the last value written by it.
+ * <br>
+ * Steps are sent as {@link CommandPriority#AUTOMATION} commands.
+ *
+ * @author David M.
+ */
+public final class FadeEngine {
+    private static final FadeEngine INSTANCE = new FadeEngine();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<AbstractFeature, Fade> activeFades = new ConcurrentHashMap<>();
+
+    private FadeEngine() {
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "paulmann-fade");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    public static FadeEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Fade from the current value to the given value.
+     * <br>
+     * If a fade of this feature is running, it is cancelled and the new fade starts at its last written value.
+     * Otherwise the current value is read from the feature (which may be answered by the value cache).
+     *
+     * @param _feature brightness or color temperature feature
+     * @param _to target value
+     * @param _durationMs duration of the fade
+     * @return future completed with true when the target was written, false if the fade failed or was cancelled
+     */
+    public CompletableFuture<Boolean> fadeTo(AbstractFeature _feature, int _to, long _durationMs) {
+        Fade running = activeFades.get(_feature);
+        Integer from = running == null ? null : running.current;
+        if (from == null) {
+            from = readValue(_feature);
+            if (from == null) {
+                logger.debug("Cannot fade {}, current value unknown", _feature);
+                return CompletableFuture.completedFuture(false);
+            }
+        }
+        return fade(_feature, from, _to, _durationMs);
+    }
+
+    /**
+     * Fade between the given values.
+     * A running fade of the same feature is cancelled.
+     *
+     * @param _feature brightness or color temperature feature
+     * @param _from start value
+     * @param _to target value
+     * @param _durationMs duration of the fade
+     * @return future completed with true when the target was written, false if the fade failed or was cancelled
+     */
+    public CompletableFuture<Boolean> fade(AbstractFeature _feature, int _from, int _to, long _durationMs) {
+        FadeSchedule schedule = FadeSchedule.plan(getLevels(_feature), _from, _to, _durationMs,
+                Math.max(0, _feature.getMeasuredWriteLatency()));
+        Fade fade = new Fade(_feature, schedule);
+        Fade previous = activeFades.put(_feature, fade);
+        if (previous != null) {
+            previous.cancel();
+        }
+        if (schedule.size() == 0) {
+            activeFades.remove(_feature, fade);
+            fade.result.complete(true);
+        } else {
+            fade.scheduleNext();
+        }
+        return fade.result;
+    }
+
+    /**
+     * Cancel the running fade of the given feature.
+     * The value written last by the fade stays on the device.
+     *
+     * @param _feature feature
+     * @return true if a fade was cancelled
+     */
+    public boolean cancel(AbstractFeature _feature) {
+        Fade fade = activeFades.remove(_feature);
+        if (fade != null) {
+            fade.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check if a fade of the given feature is running.
+     *
+     * @param _feature feature
+     * @return true if fading
+     */
+    public boolean isFading(AbstractFeature _feature) {
+        return activeFades.containsKey(_feature);
+    }
+
+    /**
+     * All values the given feature can be set to, sorted ascending.
+     *
+     * @param _feature feature
+     * @return levels
+     * @throws IllegalArgumentException if feature is not value based
+     */
+    static int[] getLevels(AbstractFeature _feature) {
+        List<Integer> levels = new ArrayList<>();
+        if (_feature instanceof AbstractByteValFeature) {
+            AbstractByteValFeature byteFeature = (AbstractByteValFeature) _feature;
+            for (int v = byteFeature.getMinValue(); v <= byteFeature.getMaxValue(); v += Math.max(1, byteFeature.getStepSize())) {
+                levels.add(v);
+            }
+        } else if (_feature instanceof AbstractIntValFeature) {
+            AbstractIntValFeature intFeature = (AbstractIntValFeature) _feature;
+            for (int v = intFeature.getMinValue(); v <= intFeature.getMaxValue(); v += Math.max(1, intFeature.getStepSize())) {
+                levels.add(v);
+            }
+        } else if (_feature instanceof AbstractPredefinedIntValFeature) {
+            for (PredefinedValue value : ((AbstractPredefinedIntValFeature) _feature).getPredefinedValues()) {
+                levels.add(value.getValue());
+            }
+            Collections.sort(levels);
+        } else {
+            throw new IllegalArgumentException("Feature " + _feature + " does not support fading");
+        }
+        int[] result = new int[levels.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = levels.get(i);
+        }
+        return result;
+    }
+
+    private static Integer readValue(AbstractFeature _feature) {
+        byte[] value = _feature.readValue();
+        if (value == null || value.length == 0) {
+            return null;
+        }
+        if (_feature instanceof AbstractByteValFeature) {
+            return (int) AbstractFeature.byteArrayToByte(value);
+        }
+        return new BigInteger(value).intValue();
+    }
+
+    private static CompletableFuture<Boolean> writeValue(AbstractFeature _feature, int _value) {
+        return CommandPriority.AUTOMATION.call(() -> writeValueInternal(_feature, _value));
+    }
+
+    private static CompletableFuture<Boolean> writeValueInternal(AbstractFeature _feature, int _value) {
+        if (_feature instanceof AbstractByteValFeature) {
+            return ((AbstractByteValFeature) _feature).writeByteAsync((byte) _value);
+        } else if (_feature instanceof AbstractIntValFeature) {
+            return ((AbstractIntValFeature) _feature).writeByteAsync(_value);
+        }
+        return ((AbstractPredefinedIntValFeature) _feature).writePredefinedValueAsync(_value);
+    }
+
+    /**
+     * A single running fade.
+     */
+    private class Fade {
+        private final AbstractFeature feature;
+        private final FadeSchedule schedule;
+        private final long startedAt = System.nanoTime();
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private volatile Integer current;
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> pending;
+        private int nextStep;
+        private int skipped;
+
+        Fade(AbstractFeature _feature, FadeSchedule _schedule) {
+            feature = _feature;
+            schedule = _schedule;
+        }
+
+        private long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        }
+
+        void scheduleNext() {
+            if (cancelled) {
+                return;
+            }
+            long delay = Math.max(0, schedule.getOffsetMs(nextStep) - elapsedMs());
+            pending = executor.schedule(this::step, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void step() {
+            if (cancelled) {
+                return;
+            }
+            // skip all steps which are overdue, only the most recent one is still worth sending
+            long elapsed = elapsedMs();
+            int step = nextStep;
+            while (step + 1 < schedule.size() && schedule.getOffsetMs(step + 1) <= elapsed) {
+                step++;
+            }
+            skipped += step - nextStep;
+            nextStep = step + 1;
+            int value = schedule.getValue(step);
+
+            writeValue(feature, value).whenComplete((success, ex) -> {
+                if (ex != null || !Boolean.TRUE.equals(success)) {
+                    logger.debug("Fade of {} failed at value {}", feature, value, ex);
+                    finish(false);
+                    return;
+                }
+                current = value;
+                if (nextStep >= schedule.size()) {
+                    logger.trace("Fade of {} finished, {} of {} steps skipped", feature, skipped, schedule.size());
+                    finish(true);
+                } else {
+                    scheduleNext();
+                }
+            });
+        }
+
+        private void finish(boolean _success) {
+            activeFades.remove(feature, this);
+            result.complete(_success);
+        }
+
+        void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> task = pending;
+            if (task != null) {
+                task.cancel(false);
+            }
+            result.complete(false);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.hypfvieh.paulmann.animation;
+
+import java.util.Arrays;
+
+/**
+ * Timed list of values written by a fade.
+ * <br>
+ * Only values the device can actually display (its quantized levels) are part of the schedule,
+ * so no write is spent on a value which would be rounded to the previous one by the device.
+ *
+ * @author David M.
+ */
+public final class FadeSchedule {
+    private final int[] values;
+    private final long[] offsetsMs;
+
+    private FadeSchedule(int[] _values, long[] _offsetsMs) {
+        values = _values;
+        offsetsMs = _offsetsMs;
+    }
+
+    /**
+     * Calculate the schedule to get from one value to another.
+     * <br>
+     * Start and target are rounded to the closest level. If there are more levels in between than
+     * writes possible in the given duration (see _minIntervalMs), levels are skipped evenly.
+     * The last step of a schedule is always the target value.
+     *
+     * @param _levels all values supported by the feature, sorted ascending
+     * @param _from current value
+     * @param _to target value
+     * @param _durationMs duration of the fade
+     * @param _minIntervalMs minimum time between two writes, 0 or less for no limit
+     * @return schedule, empty if start and target are the same level
+     */
+    public static FadeSchedule plan(int[] _levels, int _from, int _to, long _durationMs, long _minIntervalMs) {
+        if (_levels == null || _levels.length == 0) {
+            throw new IllegalArgumentException("At least one level required");
+        }
+        int fromIdx = closestLevel(_levels, _from);
+        int toIdx = closestLevel(_levels, _to);
+        int count = Math.abs(toIdx - fromIdx);
+        int direction = toIdx > fromIdx ? 1 : -1;
+
+        int steps = count;
+        long duration = Math.max(0, _durationMs);
+        if (_minIntervalMs > 0 && count > 1) {
+            steps = (int) Math.max(1, Math.min(count, duration / _minIntervalMs));
+        }
+
+        int[] values = new int[steps];
+        long[] offsets = new long[steps];
+        for (int i = 0; i < steps; i++) {
+            // spread the remaining steps evenly over the levels, last step always hits the target
+            int levelOffset = (int) Math.round((i + 1) * (double) count / steps);
+            values[i] = _levels[fromIdx + direction * levelOffset];
+            offsets[i] = duration * (i + 1) / steps;
+        }
+        return new FadeSchedule(values, offsets);
+    }
+
+    private static int closestLevel(int[] _levels, int _value) {
+        int idx = Arrays.binarySearch(_levels, _value);
+        if (idx >= 0) {
+            return idx;
+        }
+        int insert = -idx - 1;
+        if (insert == 0) {
+            return 0;
+        } else if (insert == _levels.length) {
+            return _levels.length - 1;
+        }
+        return _value - _levels[insert - 1] <= _levels[insert] - _value ? insert - 1 : insert;
+    }
+
+    /**
+     * Number of writes in this schedule.
+     * @return int
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Value of the given step.
+     * @param _step step index
+     * @return value
+     */
+    public int getValue(int _step) {
+        return values[_step];
+    }
+
+    /**
+     * Time of the given step, relative to the start of the fade.
+     * @param _step step index
+     * @return offset in milliseconds
+     */
+    public long getOffsetMs(int _step) {
+        return offsetsMs[_step];
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [values=" + Arrays.toString(values) + ", offsetsMs=" + Arrays.toString(offsetsMs) + "]";
+    }
+}
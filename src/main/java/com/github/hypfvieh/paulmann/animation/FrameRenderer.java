@@ -0,0 +1,20 @@
+package com.github.hypfvieh.paulmann.animation;
+
+/**
+ * Calculates the color of an animation frame.
+ *
+ * @author David M.
+ */
+@FunctionalInterface
+public interface FrameRenderer {
+
+    /**
+     * Render the frame for a single target.
+     *
+     * @param _target index of the target (in order the targets were added to the animation)
+     * @param _frame number of the frame, starting at 0
+     * @param _elapsedMs milliseconds since the animation was started
+     * @return red, green and blue value of the frame; null to skip this frame for the target
+     */
+    byte[] render(int _target, long _frame, long _elapsedMs);
+}
@@ -0,0 +1,331 @@
+package com.github.hypfvieh.paulmann.animation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.paulmann.connection.CommandPriority;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.features.RgbFeature;
+import com.github.hypfvieh.paulmann.features.WriteMode;
+
+/**
+ * Host driven color animation for one or many {@link RgbFeature}s.
+ * <br>
+ * Frames are rendered on a fixed tick and sent to all targets. A target which is still busy sending
+ * the previous frame skips the new frame (counted as dropped), so slow devices never build up a backlog
+ * of stale frames and the animation does not drift.
+ * <br>
+ * While running, the targets use {@link WriteMode#COMMAND} (unless disabled by {@link #setUnacknowledged(boolean)}),
+ * the previous write mode is restored when the animation is stopped and its last frame was written.
+ * Frames are sent as {@link CommandPriority#AUTOMATION} commands.
+ *
+ * @author David M.
+ */
+public class RgbAnimation {
+    public static final int DEFAULT_FPS = 10;
+    public static final int MAX_FPS = 50;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final FrameRenderer renderer;
+    private final List<Target> targets = new ArrayList<>();
+
+    private volatile int fps = DEFAULT_FPS;
+    private volatile boolean unacknowledged = true;
+
+    private ScheduledThreadPoolExecutor ticker;
+    private ScheduledFuture<?> tickTask;
+    private long startedAt;
+    /** Time the animation was stopped, 0 while running */
+    private long stoppedAt;
+    private long frame;
+
+    public RgbAnimation(FrameRenderer _renderer) {
+        if (_renderer == null) {
+            throw new IllegalArgumentException("Renderer required");
+        }
+        renderer = _renderer;
+    }
+
+    /**
+     * Add a feature which should show the animation.
+     *
+     * @param _feature target feature
+     * @return this
+     */
+    public synchronized RgbAnimation addTarget(RgbFeature _feature) {
+        if (_feature != null) {
+            targets.add(new Target(_feature, running() ? _feature.getWriteMode() : null));
+            if (running() && unacknowledged) {
+                _feature.setWriteMode(WriteMode.COMMAND);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Setup the frame rate.
+     * Takes effect on the next start of the animation.
+     *
+     * @param _fps frames per second, between 1 and {@link #MAX_FPS}
+     */
+    public void setFps(int _fps) {
+        fps = Math.max(1, Math.min(MAX_FPS, _fps));
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
+    /**
+     * Send frames without waiting for the device acknowledge (default true).
+     * Takes effect on the next start of the animation.
+     *
+     * @param _unacknowledged true to use {@link WriteMode#COMMAND}
+     */
+    public void setUnacknowledged(boolean _unacknowledged) {
+        unacknowledged = _unacknowledged;
+    }
+
+    /**
+     * Start the animation. Does nothing if already running.
+     */
+    public synchronized void start() {
+        if (running()) {
+            return;
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            Target target = targets.get(i);
+            Target fresh = new Target(target.feature, target.feature.getWriteMode());
+            targets.set(i, fresh);
+            if (unacknowledged) {
+                fresh.feature.setWriteMode(WriteMode.COMMAND);
+            }
+        }
+        ticker = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "paulmann-animation");
+            t.setDaemon(true);
+            return t;
+        });
+        frame = 0;
+        startedAt = System.currentTimeMillis();
+        stoppedAt = 0;
+        long period = TimeUnit.SECONDS.toNanos(1) / fps;
+        tickTask = ticker.scheduleAtFixedRate(this::tick, 0, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop the animation and restore the write mode of all targets.
+     * <br>
+     * A frame currently written is awaited and frames still waiting in the command queue are skipped,
+     * so no frame is sent with the restored write mode. The statistics keep the values of the stop.
+     */
+    public synchronized void stop() {
+        if (!running()) {
+            return;
+        }
+        tickTask.cancel(false);
+        ticker.shutdown();
+        tickTask = null;
+        ticker = null;
+        stoppedAt = System.currentTimeMillis();
+        for (Target target : targets) {
+            target.close();
+            if (target.previousMode != null) {
+                target.feature.setWriteMode(target.previousMode);
+            }
+        }
+    }
+
+    /**
+     * Check if the animation is running.
+     *
+     * @return true if running
+     */
+    public synchronized boolean isRunning() {
+        return running();
+    }
+
+    /**
+     * Statistics of all targets since the last start, until the animation was stopped.
+     *
+     * @return map of MAC address / {@link AnimationStats}
+     */
+    public synchronized Map<String, AnimationStats> getStats() {
+        long end = running() ? System.currentTimeMillis() : stoppedAt;
+        long elapsed = Math.max(1, end - startedAt);
+        Map<String, AnimationStats> stats = new LinkedHashMap<>();
+        for (Target target : targets) {
+            stats.put(target.feature.getMacAddress(), new AnimationStats(target.sent.get(), target.dropped.get(),
+                    target.failed.get(), target.completed.get() * 1000d / elapsed));
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private boolean running() {
+        return tickTask != null;
+    }
+
+    private void tick() {
+        List<Target> current;
+        long currentFrame;
+        long elapsed;
+        synchronized (this) {
+            if (!running()) {
+                return;
+            }
+            current = new ArrayList<>(targets);
+            currentFrame = frame++;
+            elapsed = System.currentTimeMillis() - startedAt;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            Target target = current.get(i);
+            try {
+                byte[] colors = renderer.render(i, currentFrame, elapsed);
+                if (colors != null && colors.length == 3) {
+                    target.send(colors);
+                }
+            } catch (Exception _ex) {
+                logger.warn("Rendering frame {} failed.", currentFrame, _ex);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [fps=" + fps + ", targets=" + targets.size() + ", running=" + isRunning() + "]";
+    }
+
+    /**
+     * A feature showing the animation and its statistics.
+     */
+    private static class Target {
+        private final RgbFeature feature;
+        private final WriteMode previousMode;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        /** Guards the frame writes against {@link #close()} */
+        private final Object writeLock = new Object();
+        /** True once the animation was stopped, guarded by writeLock */
+        private boolean closed;
+
+        Target(RgbFeature _feature, WriteMode _previousMode) {
+            feature = _feature;
+            previousMode = _previousMode;
+        }
+
+        void send(byte[] _colors) {
+            if (!busy.compareAndSet(false, true)) {
+                dropped.incrementAndGet(); // previous frame still in progress, this frame is already stale when sent
+                return;
+            }
+            sent.incrementAndGet();
+            CompletableFuture<Boolean> future = ConnectionManager.getInstance().getSession(feature.getDevice())
+                    .getCommandQueue().submit(CommandPriority.AUTOMATION, () -> write(_colors));
+            future.whenComplete((success, ex) -> {
+                if (ex instanceof CancellationException) {
+                    sent.decrementAndGet(); // never reached the device
+                    dropped.incrementAndGet();
+                } else if (ex == null && Boolean.TRUE.equals(success)) {
+                    completed.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+                busy.set(false);
+            });
+        }
+
+        private boolean write(byte[] _colors) {
+            synchronized (writeLock) {
+                if (closed) {
+                    throw new CancellationException("Animation stopped");
+                }
+                return feature.writeValue(_colors);
+            }
+        }
+
+        /**
+         * Stops sending frames.
+         * A frame currently written is awaited, a frame still waiting in the command queue is skipped.
+         */
+        void close() {
+            synchronized (writeLock) {
+                closed = true;
+            }
+        }
+    }
+
+    /**
+     * Frame statistics of a single target.
+     *
+     * @author David M.
+     */
+    public static class AnimationStats {
+        private final long framesSent;
+        private final long framesDropped;
+        private final long framesFailed;
+        private final double fps;
+
+        AnimationStats(long _framesSent, long _framesDropped, long _framesFailed, double _fps) {
+            framesSent = _framesSent;
+            framesDropped = _framesDropped;
+            framesFailed = _framesFailed;
+            fps = _fps;
+        }
+
+        /**
+         * Number of frames passed to the device.
+         * @return long
+         */
+        public long getFramesSent() {
+            return framesSent;
+        }
+
+        /**
+         * Number of frames skipped because the device was still busy with the previous frame.
+         * @return long
+         */
+        public long getFramesDropped() {
+            return framesDropped;
+        }
+
+        /**
+         * Number of frames which could not be written.
+         * @return long
+         */
+        public long getFramesFailed() {
+            return framesFailed;
+        }
+
+        /**
+         * Achieved frame rate (successfully written frames per second).
+         * @return double
+         */
+        public double getFps() {
+            return fps;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " [framesSent=" + framesSent + ", framesDropped=" + framesDropped
+                    + ", framesFailed=" + framesFailed + ", fps=" + String.format("%.1f", fps) + "]";
+        }
+    }
+}
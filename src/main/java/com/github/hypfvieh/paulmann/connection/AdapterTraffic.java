@@ -0,0 +1,79 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command load of all devices connected through the same bluetooth adapter.
+ * <br>
+ * Counts the interactive commands queued or running on any device of the adapter, so background
+ * commands of other devices can be held back while a user is interacting, and collects the
+ * queue wait times of all devices per {@link CommandPriority}.
+ *
+ * @author David M.
+ */
+public class AdapterTraffic {
+
+    private final String adapterPath;
+    private final AtomicInteger pendingInteractive = new AtomicInteger();
+    private final Map<CommandPriority, QueueWaitStats> waitStats = new EnumMap<>(CommandPriority.class);
+
+    AdapterTraffic(String _adapterPath) {
+        adapterPath = _adapterPath;
+        for (CommandPriority priority : CommandPriority.values()) {
+            waitStats.put(priority, new QueueWaitStats());
+        }
+    }
+
+    void interactiveQueued() {
+        pendingInteractive.incrementAndGet();
+    }
+
+    void interactiveDone() {
+        pendingInteractive.decrementAndGet();
+    }
+
+    void recordWait(CommandPriority _priority, long _waitNanos) {
+        waitStats.get(_priority).record(_waitNanos);
+    }
+
+    public String getAdapterPath() {
+        return adapterPath;
+    }
+
+    /**
+     * Number of interactive commands queued or running on any device of this adapter.
+     *
+     * @return int
+     */
+    public int getPendingInteractive() {
+        return pendingInteractive.get();
+    }
+
+    /**
+     * Queue wait times of all devices of this adapter for the given priority.
+     *
+     * @param _priority priority class
+     * @return {@link QueueWaitStats}
+     */
+    public QueueWaitStats getWaitStats(CommandPriority _priority) {
+        return waitStats.get(_priority);
+    }
+
+    /**
+     * Queue wait times of all devices of this adapter.
+     *
+     * @return unmodifiable map of priority / {@link QueueWaitStats}
+     */
+    public Map<CommandPriority, QueueWaitStats> getWaitStats() {
+        return Collections.unmodifiableMap(waitStats);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [adapterPath=" + adapterPath + ", pendingInteractive=" + getPendingInteractive()
+                + ", waitStats=" + waitStats + "]";
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.hypfvieh.paulmann.connection;
+
+/**
+ * Circuit breaker of a single device, selected by MAC address (see {@link ConnectionManager#getCircuitBreaker}).
+ * <br>
+ * After {@link ConnectionManager#getFailureThreshold()} failed operations in a row the breaker opens
+ * and all further operations fail fast without trying to reach the device.
+ * Once {@link ConnectionManager#getOpenDuration()} has passed, the breaker is half-open and lets
+ * exactly one operation pass to probe the device, all others still fail fast. The result of the probe decides
+ * if the breaker closes again or stays open for another period. Nested calls done by the thread executing
+ * the probe are part of the probe.
+ *
+ * @author David M.
+ */
+public class CircuitBreaker {
+
+    private final ConnectionManager manager;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    /** thread executing the half-open probe, null if no probe is running */
+    private Thread probe;
+    private long probeStartedAt;
+
+    CircuitBreaker(ConnectionManager _manager) {
+        manager = _manager;
+    }
+
+    /**
+     * Check if an operation may be executed.
+     * In half-open state only the first caller is allowed (it becomes the probe) until a result is recorded.
+     *
+     * @return true if breaker is closed or the caller is the half-open probe
+     */
+    public synchronized boolean allowRequest() {
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN && now - openedAt >= manager.getOpenDuration()) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        } else if (state == State.OPEN) {
+            return false;
+        }
+        if (probe == Thread.currentThread()) {
+            return true;
+        }
+        // a probe which never recorded its result must not block the device forever
+        if (probe == null || now - probeStartedAt >= manager.getOpenDuration()) {
+            probe = Thread.currentThread();
+            probeStartedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Record a successful operation, closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        failures = 0;
+        state = State.CLOSED;
+        probe = null;
+    }
+
+    /**
+     * Record a failed operation.
+     */
+    public synchronized void recordFailure() {
+        failures++;
+        probe = null;
+        if (state == State.HALF_OPEN || failures >= manager.getFailureThreshold()) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Current state of the breaker.
+     *
+     * @return {@link State}
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= manager.getOpenDuration()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Number of failed operations in a row.
+     *
+     * @return int
+     */
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return getClass().getSimpleName() + " [state=" + state + ", failures=" + failures + "]";
+    }
+
+    /**
+     * States of the {@link CircuitBreaker}.
+     */
+    public static enum State {
+        /** Device is working, all operations are executed. */
+        CLOSED,
+        /** Device is known to be unreachable, operations fail fast. */
+        OPEN,
+        /** Device was unreachable, a single operation is executed to probe if it recovered. */
+        HALF_OPEN;
+    }
+}
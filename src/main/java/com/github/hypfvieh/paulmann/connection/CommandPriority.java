@@ -0,0 +1,68 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority classes of device commands.
+ * <br>
+ * Commands are taken from the {@link DeviceCommandQueue} in order of their priority class.
+ * Commands which do not specify a priority use the priority of the current scope (see {@link #call(Supplier)}),
+ * or {@link #INTERACTIVE} outside of any scope.
+ *
+ * @author David M.
+ */
+public enum CommandPriority {
+    /** Commands triggered by a user, executed before everything else. */
+    INTERACTIVE,
+    /** Scheduled or host driven commands like fades, animations and scenes. */
+    AUTOMATION,
+    /** Maintenance like state polling or clock sync, held back while a user is interacting with the adapter. */
+    BACKGROUND;
+
+    private static final ThreadLocal<CommandPriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Priority used for commands submitted by the calling thread without explicit priority.
+     *
+     * @return priority of the current scope or {@link #INTERACTIVE}
+     */
+    public static CommandPriority current() {
+        CommandPriority priority = CURRENT.get();
+        return priority == null ? INTERACTIVE : priority;
+    }
+
+    /**
+     * Calls the given supplier with this priority as scope.
+     * All commands queued by the supplier on the calling thread without explicit priority use this priority.
+     *
+     * @param _command code to execute
+     * @param <T> result type
+     * @return result of the supplier
+     */
+    public <T> T call(Supplier<T> _command) {
+        CommandPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return _command.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs the given code with this priority as scope.
+     *
+     * @param _command code to execute
+     * @see #call(Supplier)
+     */
+    public void run(Runnable _command) {
+        call(() -> {
+            _command.run();
+            return null;
+        });
+    }
+}
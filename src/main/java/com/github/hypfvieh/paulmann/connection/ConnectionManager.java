@@ -0,0 +1,289 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
+
+/**
+ * Manages the bluetooth connections of all Paulmann devices.
+ * <br>
+ * Connections are kept open after a read/write operation and are shared by all features of the same device.
+ * A connection is closed when it was not used for the configured idle timeout.
+ *
+ * @author David M.
+ */
+public class ConnectionManager {
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 5000L;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_OPEN_DURATION_MS = 30000L;
+    public static final long DEFAULT_MAX_COMMAND_WAIT_MS = 5000L;
+    public static final int DEFAULT_BACKGROUND_THROTTLE_THRESHOLD = 1;
+
+    /** Maximum time to wait for the running command of a closed session */
+    private static final long CLOSE_TIMEOUT_MS = 30000L;
+
+    private static final ConnectionManager INSTANCE = new ConnectionManager();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** Map of device object path -> session (a device seen by multiple adapters has one path per adapter) */
+    private final Map<String, DeviceSession> sessions = new ConcurrentHashMap<>();
+
+    /** Map of device MAC -> circuit breaker, shared by all sessions of the device and kept when a session is closed */
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /** Map of adapter object path -> command load of all devices of this adapter */
+    private final Map<String, AdapterTraffic> adapterTraffic = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor idleScheduler;
+
+    private volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT_MS;
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile long openDuration = DEFAULT_OPEN_DURATION_MS;
+    private volatile long maxCommandWait = DEFAULT_MAX_COMMAND_WAIT_MS;
+    private volatile int backgroundThrottleThreshold = DEFAULT_BACKGROUND_THROTTLE_THRESHOLD;
+
+    private ConnectionManager() {
+        idleScheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "paulmann-idle-disconnect");
+            t.setDaemon(true);
+            return t;
+        });
+        idleScheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    public static ConnectionManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the session for the given device.
+     * A new session is created if the device was not used before through the same adapter.
+     *
+     * @param _device bluetooth device
+     * @return {@link DeviceSession}, never null
+     */
+    public DeviceSession getSession(BluetoothDevice _device) {
+        return sessions.computeIfAbsent(sessionKey(_device), k -> new DeviceSession(_device, this));
+    }
+
+    /**
+     * Time in milliseconds an unused connection will be kept open.
+     * A value of 0 or less will close the connection right after each operation.
+     *
+     * @param _idleTimeoutMs timeout in milliseconds
+     */
+    public void setIdleTimeout(long _idleTimeoutMs) {
+        idleTimeout = _idleTimeoutMs;
+    }
+
+    /**
+     * Returns the currently configured idle timeout in milliseconds.
+     *
+     * @return timeout
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Setup the retry behavior used for failed device operations.
+     *
+     * @param _retryPolicy policy to use, null to disable retries
+     */
+    public void setRetryPolicy(RetryPolicy _retryPolicy) {
+        retryPolicy = _retryPolicy == null ? RetryPolicy.NO_RETRY : _retryPolicy;
+    }
+
+    /**
+     * Returns the currently used retry policy.
+     *
+     * @return {@link RetryPolicy}, never null
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Number of failed operations in a row after which the circuit breaker of a device opens.
+     *
+     * @param _failureThreshold threshold, at least 1
+     */
+    public void setFailureThreshold(int _failureThreshold) {
+        failureThreshold = Math.max(1, _failureThreshold);
+    }
+
+    /**
+     * Returns the currently configured circuit breaker failure threshold.
+     *
+     * @return threshold
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Time in milliseconds an open circuit breaker fails all operations before it allows probing the device again.
+     *
+     * @param _openDurationMs duration in milliseconds
+     */
+    public void setOpenDuration(long _openDurationMs) {
+        openDuration = _openDurationMs;
+    }
+
+    /**
+     * Returns the currently configured circuit breaker open duration in milliseconds.
+     *
+     * @return duration
+     */
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Time in milliseconds a queued command may wait before it is executed regardless of its {@link CommandPriority}.
+     *
+     * @param _maxCommandWaitMs wait time in milliseconds
+     */
+    public void setMaxCommandWait(long _maxCommandWaitMs) {
+        maxCommandWait = Math.max(0, _maxCommandWaitMs);
+    }
+
+    /**
+     * Returns the currently configured maximum command wait time in milliseconds.
+     *
+     * @return wait time
+     */
+    public long getMaxCommandWait() {
+        return maxCommandWait;
+    }
+
+    /**
+     * Number of pending interactive commands on an adapter from which on background commands
+     * of all devices of this adapter are held back.
+     *
+     * @param _threshold threshold, at least 1
+     */
+    public void setBackgroundThrottleThreshold(int _threshold) {
+        backgroundThrottleThreshold = Math.max(1, _threshold);
+    }
+
+    /**
+     * Returns the currently configured background throttle threshold.
+     *
+     * @return threshold
+     */
+    public int getBackgroundThrottleThreshold() {
+        return backgroundThrottleThreshold;
+    }
+
+    /**
+     * Command load and queue wait times of all adapters used so far.
+     *
+     * @return unmodifiable map of adapter object path / {@link AdapterTraffic}
+     */
+    public Map<String, AdapterTraffic> getAdapterTraffic() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(adapterTraffic));
+    }
+
+    /**
+     * Returns the traffic of the adapter the given device is connected through.
+     *
+     * @param _device bluetooth device
+     * @return {@link AdapterTraffic}, never null
+     */
+    AdapterTraffic getAdapterTraffic(BluetoothDevice _device) {
+        return adapterTraffic.computeIfAbsent(getAdapterPath(_device), AdapterTraffic::new);
+    }
+
+    /**
+     * Returns the circuit breaker of the given device.
+     * The breaker is selected by MAC address, so a device seen through multiple adapters has only one breaker.
+     *
+     * @param _device bluetooth device
+     * @return {@link CircuitBreaker}, never null
+     */
+    public CircuitBreaker getCircuitBreaker(BluetoothDevice _device) {
+        String address = _device.getAddress();
+        String key = address != null ? address.toUpperCase(Locale.ROOT) : sessionKey(_device);
+        return circuitBreakers.computeIfAbsent(key, k -> new CircuitBreaker(this));
+    }
+
+    /**
+     * Closes the connection to the given device (if any) and removes its session.
+     * <br>
+     * The command queue of the session is shut down first: pending commands fail and the command currently
+     * executed is awaited, so a new session of the same device never overlaps with the old one.
+     *
+     * @param _device device to disconnect
+     */
+    public void close(BluetoothDevice _device) {
+        if (_device == null) {
+            return;
+        }
+        DeviceSession session = sessions.remove(sessionKey(_device));
+        if (session != null) {
+            session.getCommandQueue().shutdown();
+            awaitIdle(session);
+            session.close();
+        }
+    }
+
+    /**
+     * Closes all managed connections.
+     */
+    public void closeAll() {
+        List<DeviceSession> all = new ArrayList<>(sessions.values());
+        sessions.clear();
+        for (DeviceSession session : all) {
+            session.getCommandQueue().shutdown();
+        }
+        for (DeviceSession session : all) {
+            try {
+                awaitIdle(session);
+                session.close();
+            } catch (Exception _ex) {
+                logger.debug("Error while closing connection to {}", session.getDevice().getAddress(), _ex);
+            }
+        }
+    }
+
+    private void awaitIdle(DeviceSession _session) {
+        if (!_session.getCommandQueue().isConsumerThread() && !_session.getCommandQueue().awaitIdle(CLOSE_TIMEOUT_MS)) {
+            logger.debug("Command of {} still running while closing connection", _session.getDevice().getAddress());
+        }
+    }
+
+    private static String sessionKey(BluetoothDevice _device) {
+        String path = _device.getDbusPath();
+        return path != null ? path : _device.getAddress();
+    }
+
+    /**
+     * Extracts the adapter object path from a bluez device (e.g. /org/bluez/hci0/dev_00_11_22_33_44_55 -&gt; /org/bluez/hci0).
+     *
+     * @param _device device
+     * @return adapter path, empty string if unknown
+     */
+    public static String getAdapterPath(BluetoothDevice _device) {
+        String path = _device.getDbusPath();
+        int idx = path == null ? -1 : path.lastIndexOf("/dev_");
+        return idx < 0 ? "" : path.substring(0, idx);
+    }
+
+    ScheduledThreadPoolExecutor getIdleScheduler() {
+        return idleScheduler;
+    }
+
+}
@@ -0,0 +1,361 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Serializes all commands sent to a single bluetooth device.
+ * <br>
+ * Commands are executed one after another by a single consumer.
+ * Consumers are taken from a worker pool shared by all devices, so commands for different devices
+ * are executed in parallel while commands for the same device never overlap.
+ * <br>
+ * Each command has a {@link CommandPriority}. Commands of a higher priority are executed first,
+ * commands of the same priority in submission order. {@link CommandPriority#BACKGROUND} commands are
+ * held back while any device of the same adapter has interactive commands pending.
+ * A command waiting longer than {@link ConnectionManager#getMaxCommandWait()} is executed next regardless of its priority,
+ * so lower priorities never starve.
+ * <br>
+ * When the session of the device is closed, the queue is shut down: pending commands fail with a
+ * {@link DeviceUnavailableException} and new commands are rejected.
+ *
+ * @author David M.
+ */
+public class DeviceCommandQueue {
+
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "paulmann-command-queue");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Time to wait before checking again if held back background commands may run */
+    private static final long BACKGROUND_RETRY_MS = 50L;
+
+    private final ConnectionManager manager;
+    private final AdapterTraffic adapterTraffic;
+    private final Map<CommandPriority, Deque<QueuedCommand>> commands = new EnumMap<>(CommandPriority.class);
+    private final Map<CommandPriority, QueueWaitStats> waitStats = new EnumMap<>(CommandPriority.class);
+    private boolean running;
+    private boolean shutdown;
+    private volatile Thread consumer;
+
+    DeviceCommandQueue(ConnectionManager _manager, AdapterTraffic _adapterTraffic) {
+        manager = _manager;
+        adapterTraffic = _adapterTraffic;
+        for (CommandPriority priority : CommandPriority.values()) {
+            commands.put(priority, new ArrayDeque<>());
+            waitStats.put(priority, new QueueWaitStats());
+        }
+    }
+
+    /**
+     * Add a command to the queue using the priority of the current scope.
+     *
+     * @param _command command to execute
+     * @param <T> result type
+     * @return future which is completed with the result of the command
+     * @see CommandPriority#current()
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> _command) {
+        return submit(CommandPriority.current(), _command);
+    }
+
+    /**
+     * Add a command with the given priority to the queue.
+     * Cancelling the returned future before the command was started removes the command from execution.
+     *
+     * @param _priority priority of the command
+     * @param _command command to execute
+     * @param <T> result type
+     * @return future which is completed with the result of the command
+     */
+    public <T> CompletableFuture<T> submit(CommandPriority _priority, Supplier<T> _command) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        enqueue(_priority, () -> {
+            if (future.isDone()) { // cancelled while waiting
+                return;
+            }
+            try {
+                future.complete(_priority.call(_command));
+            } catch (Throwable _ex) {
+                future.completeExceptionally(_ex);
+            }
+        }, future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * Execute a command using the priority of the current scope and wait for its result.
+     * If called from within another command of this queue, the command is executed directly.
+     *
+     * @param _command command to execute
+     * @param <T> result type
+     * @return result of the command
+     */
+    public <T> T execute(Supplier<T> _command) {
+        return execute(CommandPriority.current(), _command);
+    }
+
+    /**
+     * Execute a command with the given priority and wait for its result.
+     * If called from within another command of this queue, the command is executed directly.
+     *
+     * @param _priority priority of the command
+     * @param _command command to execute
+     * @param <T> result type
+     * @return result of the command
+     */
+    public <T> T execute(CommandPriority _priority, Supplier<T> _command) {
+        if (isConsumerThread()) {
+            return _command.get();
+        }
+        return submit(_priority, _command).join();
+    }
+
+    /**
+     * Check if the calling thread is currently executing a command of this queue.
+     *
+     * @return true if called from within a command
+     */
+    public boolean isConsumerThread() {
+        return consumer == Thread.currentThread();
+    }
+
+    /**
+     * Number of commands waiting for execution.
+     *
+     * @return int
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Deque<QueuedCommand> queue : commands.values()) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * Number of commands of the given priority waiting for execution.
+     *
+     * @param _priority priority class
+     * @return int
+     */
+    public synchronized int size(CommandPriority _priority) {
+        return commands.get(_priority).size();
+    }
+
+    /**
+     * Queue wait times of this device for the given priority.
+     *
+     * @param _priority priority class
+     * @return {@link QueueWaitStats}
+     */
+    public QueueWaitStats getWaitStats(CommandPriority _priority) {
+        return waitStats.get(_priority);
+    }
+
+    /**
+     * Queue wait times of this device.
+     *
+     * @return unmodifiable map of priority / {@link QueueWaitStats}
+     */
+    public Map<CommandPriority, QueueWaitStats> getWaitStats() {
+        return Collections.unmodifiableMap(waitStats);
+    }
+
+    /**
+     * Stops accepting commands and fails all pending commands with a {@link DeviceUnavailableException}.
+     * A command currently executed is not interrupted, use {@link #awaitIdle(long)} to wait for it.
+     */
+    public void shutdown() {
+        List<QueuedCommand> pending = new ArrayList<>();
+        synchronized (this) {
+            shutdown = true;
+            for (Deque<QueuedCommand> queue : commands.values()) {
+                pending.addAll(queue);
+                queue.clear();
+            }
+        }
+        for (QueuedCommand command : pending) {
+            if (command.priority == CommandPriority.INTERACTIVE) {
+                adapterTraffic.interactiveDone();
+            }
+            command.abort(new DeviceUnavailableException("Command queue closed"));
+        }
+    }
+
+    /**
+     * Check if this queue was shut down.
+     *
+     * @return true if shut down
+     */
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Waits until no command is executed anymore.
+     * Returns immediately when called from within a command of this queue.
+     *
+     * @param _timeoutMs maximum time to wait in milliseconds
+     * @return true if the queue is idle, false if the timeout elapsed or the thread was interrupted
+     */
+    public synchronized boolean awaitIdle(long _timeoutMs) {
+        if (isConsumerThread()) {
+            return false;
+        }
+        long deadline = System.currentTimeMillis() + _timeoutMs;
+        try {
+            while (running) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException _ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Load of the adapter this device is connected through.
+     *
+     * @return {@link AdapterTraffic}
+     */
+    public AdapterTraffic getAdapterTraffic() {
+        return adapterTraffic;
+    }
+
+    private void enqueue(CommandPriority _priority, Runnable _command, Consumer<Throwable> _abort) {
+        QueuedCommand queued = new QueuedCommand(_priority, _command, _abort);
+        synchronized (this) {
+            if (!shutdown) {
+                if (_priority == CommandPriority.INTERACTIVE) {
+                    adapterTraffic.interactiveQueued();
+                }
+                commands.get(_priority).add(queued);
+                if (running) {
+                    return;
+                }
+                running = true;
+                queued = null;
+            }
+        }
+        if (queued != null) {
+            _abort.accept(new DeviceUnavailableException("Command queue closed"));
+            return;
+        }
+        WORKERS.execute(this::drain);
+    }
+
+    /**
+     * Starts a consumer if commands are left and no consumer is running.
+     */
+    private void resume() {
+        synchronized (this) {
+            if (running || size() == 0) {
+                return;
+            }
+            running = true;
+        }
+        WORKERS.execute(this::drain);
+    }
+
+    private void drain() {
+        consumer = Thread.currentThread();
+        while (true) {
+            QueuedCommand next;
+            synchronized (this) {
+                next = selectNext();
+                if (next == null) {
+                    consumer = null;
+                    running = false;
+                    notifyAll();
+                    if (size() > 0) { // only held back background commands left
+                        manager.getIdleScheduler().schedule(this::resume, BACKGROUND_RETRY_MS, TimeUnit.MILLISECONDS);
+                    }
+                    return;
+                }
+            }
+            long wait = System.nanoTime() - next.queuedAt;
+            waitStats.get(next.priority).record(wait);
+            adapterTraffic.recordWait(next.priority, wait);
+            try {
+                next.command.run();
+            } finally {
+                if (next.priority == CommandPriority.INTERACTIVE) {
+                    adapterTraffic.interactiveDone();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the next command to execute from the queue.
+     * Must be called while holding the lock of this queue.
+     *
+     * @return command or null if nothing may be executed now
+     */
+    private QueuedCommand selectNext() {
+        long maxWait = TimeUnit.MILLISECONDS.toNanos(manager.getMaxCommandWait());
+        long now = System.nanoTime();
+        // commands waiting too long are executed first, oldest first
+        QueuedCommand overdue = null;
+        for (Deque<QueuedCommand> queue : commands.values()) {
+            QueuedCommand head = queue.peek();
+            if (head != null && now - head.queuedAt > maxWait && (overdue == null || head.queuedAt < overdue.queuedAt)) {
+                overdue = head;
+            }
+        }
+        if (overdue != null) {
+            return commands.get(overdue.priority).poll();
+        }
+        for (Deque<QueuedCommand> queue : commands.values()) {
+            QueuedCommand head = queue.peek();
+            if (head == null) {
+                continue;
+            }
+            if (head.priority == CommandPriority.BACKGROUND
+                    && adapterTraffic.getPendingInteractive() >= manager.getBackgroundThrottleThreshold()) {
+                return null;
+            }
+            return queue.poll();
+        }
+        return null;
+    }
+
+    /**
+     * Command waiting for execution.
+     */
+    private static class QueuedCommand {
+        private final CommandPriority priority;
+        private final Runnable command;
+        private final Consumer<Throwable> onAbort;
+        private final long queuedAt = System.nanoTime();
+
+        QueuedCommand(CommandPriority _priority, Runnable _command, Consumer<Throwable> _onAbort) {
+            priority = _priority;
+            command = _command;
+            onAbort = _onAbort;
+        }
+
+        void abort(Throwable _reason) {
+            onAbort.accept(_reason);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.hypfvieh.paulmann.connection;
+
+/**
+ * Operation executed on a connected device.
+ *
+ * @param <T> result type
+ *
+ * @author David M.
+ */
+@FunctionalInterface
+public interface DeviceOperation<T> {
+
+    /**
+     * Execute the operation.
+     *
+     * @return result
+     * @throws Exception on error
+     */
+    T execute() throws Exception;
+}
@@ -0,0 +1,319 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
+
+/**
+ * Connection state of a single bluetooth device.
+ * <br>
+ * Every operation on the device has to call {@link #acquire()} before and {@link #release()} after using the connection.
+ * The connection is established on the first acquire and closed after it was idle for
+ * {@link ConnectionManager#getIdleTimeout()} milliseconds.
+ *
+ * @author David M.
+ */
+public class DeviceSession {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final BluetoothDevice device;
+    private final ConnectionManager manager;
+    private final DeviceCommandQueue commandQueue;
+    private final WriteLatencyTracker writeLatency = new WriteLatencyTracker();
+    private final CircuitBreaker circuitBreaker;
+
+    private int users;
+    private long lastUsed;
+    private ScheduledFuture<?> idleTask;
+
+    DeviceSession(BluetoothDevice _device, ConnectionManager _manager) {
+        device = _device;
+        manager = _manager;
+        circuitBreaker = _manager.getCircuitBreaker(_device);
+        commandQueue = new DeviceCommandQueue(_manager, _manager.getAdapterTraffic(_device));
+    }
+
+    /**
+     * Ensures the device is connected and marks the connection as in use.
+     * Every successful call has to be followed by a call to {@link #release()}.
+     * Fails without trying to connect if the circuit breaker of the device is open.
+     * A failed connect is recorded as failure and a successful connect as success in the circuit breaker,
+     * so callers which only hold the connection (e.g. for notifications) also finish a half-open probe.
+     *
+     * @return true if connection is established, false otherwise
+     */
+    public synchronized boolean acquire() {
+        if (!acquireConnection()) {
+            return false;
+        }
+        circuitBreaker.recordSuccess();
+        return true;
+    }
+
+    /**
+     * Connects if required and marks the connection as in use.
+     * Only failures are recorded, {@link #execute(DeviceOperation)} records the result of the whole operation.
+     *
+     * @return true if connection is established, false otherwise
+     */
+    private synchronized boolean acquireConnection() {
+        if (!circuitBreaker.allowRequest()) {
+            return false;
+        }
+        try {
+            if (!device.isConnected() && !device.connect()) {
+                circuitBreaker.recordFailure();
+                return false;
+            }
+        } catch (Exception _ex) {
+            logger.warn("Could not connect to device.", _ex);
+            circuitBreaker.recordFailure();
+            return false;
+        }
+        users++;
+        return true;
+    }
+
+    /**
+     * Executes the given operation on the connected device.
+     * <br>
+     * Failed attempts are retried as defined by {@link ConnectionManager#getRetryPolicy()}.
+     * A failed connect is not retried: it already took the full connect timeout of bluez and is
+     * counted by the circuit breaker right away.
+     * The outcome is recorded in the circuit breaker of the device; while the breaker is open
+     * the operation fails immediately with a {@link DeviceUnavailableException}.
+     *
+     * @param _operation operation to execute
+     * @param <T> result type
+     * @return result of the operation
+     * @throws Exception error of the last attempt
+     */
+    public <T> T execute(DeviceOperation<T> _operation) throws Exception {
+        if (!circuitBreaker.allowRequest()) {
+            throw new DeviceUnavailableException("Device " + device.getAddress() + " is unavailable (circuit open)");
+        }
+        RetryPolicy policy = manager.getRetryPolicy();
+        for (int attempt = 1;; attempt++) {
+            try {
+                T result = executeOnce(_operation);
+                circuitBreaker.recordSuccess();
+                return result;
+            } catch (DeviceUnavailableException _ex) {
+                throw _ex; // connect failed, already recorded by acquire()
+            } catch (Exception _ex) {
+                if (!policy.isTransient(_ex)) {
+                    circuitBreaker.recordSuccess(); // device answered, it just refused the operation
+                    throw _ex;
+                }
+                if (attempt >= policy.getMaxAttempts()) {
+                    circuitBreaker.recordFailure();
+                    throw _ex;
+                }
+                long delay = policy.getDelay(attempt);
+                logger.debug("Attempt {} on device {} failed, retrying in {} ms", attempt, device.getAddress(), delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException _exInt) {
+                    Thread.currentThread().interrupt();
+                    throw _ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes the given operation as command of the device queue with the given priority and waits for the result.
+     * Use this instead of {@link #execute(DeviceOperation)} for operations not started from within a command,
+     * so they do not interleave with queued commands of the same device.
+     *
+     * @param _priority priority of the command
+     * @param _operation operation to execute
+     * @param <T> result type
+     * @return result of the operation
+     * @throws Exception error of the last attempt
+     * @see #execute(DeviceOperation)
+     */
+    public <T> T executeQueued(CommandPriority _priority, DeviceOperation<T> _operation) throws Exception {
+        try {
+            return commandQueue.execute(_priority, () -> executeUnchecked(_operation));
+        } catch (CompletionException _ex) {
+            throw unwrap(_ex);
+        }
+    }
+
+    /**
+     * Executes the given operation as command of the device queue and waits at most the given time for the result.
+     * <br>
+     * The wait can be interrupted. If the timeout elapses or the caller is interrupted, the command is cancelled:
+     * a command which was not started yet is not executed anymore, a running command is finished in the background.
+     *
+     * @param _priority priority of the command
+     * @param _operation operation to execute
+     * @param _timeoutMs maximum time to wait in milliseconds
+     * @param <T> result type
+     * @return result of the operation
+     * @throws TimeoutException if the operation did not finish in time
+     * @throws InterruptedException if the caller was interrupted while waiting
+     * @throws Exception error of the last attempt
+     * @see #executeQueued(CommandPriority, DeviceOperation)
+     */
+    public <T> T executeQueued(CommandPriority _priority, DeviceOperation<T> _operation, long _timeoutMs) throws Exception {
+        if (commandQueue.isConsumerThread()) {
+            return execute(_operation);
+        }
+        CompletableFuture<T> future = commandQueue.submit(_priority, () -> executeUnchecked(_operation));
+        try {
+            return future.get(_timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException _ex) {
+            throw _ex.getCause() instanceof Exception ? (Exception) _ex.getCause() : _ex;
+        } finally {
+            future.cancel(false);
+        }
+    }
+
+    private <T> T executeUnchecked(DeviceOperation<T> _operation) {
+        try {
+            return execute(_operation);
+        } catch (Exception _ex) {
+            throw new CompletionException(_ex);
+        }
+    }
+
+    private static Exception unwrap(CompletionException _ex) {
+        if (_ex.getCause() instanceof Exception) {
+            return (Exception) _ex.getCause();
+        }
+        return _ex;
+    }
+
+    private <T> T executeOnce(DeviceOperation<T> _operation) throws Exception {
+        if (!acquireConnection()) {
+            throw new DeviceUnavailableException("Could not connect to device " + device.getAddress());
+        }
+        try {
+            return _operation.execute();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Marks the connection as unused.
+     * The connection will be closed after the idle timeout, or immediately if no idle timeout is configured.
+     */
+    public synchronized void release() {
+        if (users > 0) {
+            users--;
+        }
+        lastUsed = System.currentTimeMillis();
+        if (users > 0) {
+            return;
+        }
+
+        long timeout = manager.getIdleTimeout();
+        if (timeout <= 0) {
+            disconnect();
+        } else if (idleTask == null) {
+            idleTask = manager.getIdleScheduler().schedule(this::checkIdle, timeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes the connection regardless of the idle time.
+     */
+    public synchronized void close() {
+        if (idleTask != null) {
+            idleTask.cancel(false);
+            idleTask = null;
+        }
+        disconnect();
+    }
+
+    /**
+     * Check if this session currently holds an open connection.
+     *
+     * @return true if connected
+     */
+    public boolean isConnected() {
+        return device.isConnected();
+    }
+
+    /**
+     * Bluetooth device of this session.
+     *
+     * @return {@link BluetoothDevice}
+     */
+    public BluetoothDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * Queue which serializes all commands sent to this device.
+     *
+     * @return {@link DeviceCommandQueue}
+     */
+    public DeviceCommandQueue getCommandQueue() {
+        return commandQueue;
+    }
+
+    /**
+     * Measured write latency of this device.
+     *
+     * @return {@link WriteLatencyTracker}
+     */
+    public WriteLatencyTracker getWriteLatency() {
+        return writeLatency;
+    }
+
+    /**
+     * Circuit breaker of this device, shared with all other sessions of the same MAC address.
+     *
+     * @return {@link CircuitBreaker}
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Called by the idle scheduler.
+     * Closes the connection if it was not used within the timeout, otherwise re-schedules the check
+     * for the remaining time.
+     */
+    private synchronized void checkIdle() {
+        idleTask = null;
+        if (users > 0) {
+            return;
+        }
+        long remaining = lastUsed + manager.getIdleTimeout() - System.currentTimeMillis();
+        if (remaining > 0) {
+            idleTask = manager.getIdleScheduler().schedule(this::checkIdle, remaining, TimeUnit.MILLISECONDS);
+        } else {
+            logger.debug("Closing idle connection to {}", device.getAddress());
+            disconnect();
+        }
+    }
+
+    private void disconnect() {
+        try {
+            if (device.isConnected()) {
+                device.disconnect();
+            }
+        } catch (Exception _ex) {
+            logger.debug("Error while disconnecting from device.", _ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [device=" + device.getAddress() + ", users=" + users + "]";
+    }
+}
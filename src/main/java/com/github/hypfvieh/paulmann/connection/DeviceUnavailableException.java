@@ -0,0 +1,14 @@
+package com.github.hypfvieh.paulmann.connection;
+
+/**
+ * Thrown when a device could not be connected or its circuit breaker is open.
+ *
+ * @author David M.
+ */
+public class DeviceUnavailableException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public DeviceUnavailableException(String _message) {
+        super(_message);
+    }
+}
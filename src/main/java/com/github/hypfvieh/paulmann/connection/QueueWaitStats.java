@@ -0,0 +1,60 @@
+package com.github.hypfvieh.paulmann.connection;
+
+/**
+ * Tracks the time commands spent waiting in a command queue before they were executed.
+ *
+ * @author David M.
+ */
+public class QueueWaitStats {
+
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    QueueWaitStats() {
+    }
+
+    /**
+     * Record the wait time of a command.
+     *
+     * @param _waitNanos time between queuing and execution in nanoseconds
+     */
+    synchronized void record(long _waitNanos) {
+        count++;
+        totalNanos += _waitNanos;
+        maxNanos = Math.max(maxNanos, _waitNanos);
+    }
+
+    /**
+     * Number of executed commands.
+     *
+     * @return long
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Average wait time in milliseconds.
+     *
+     * @return wait time or 0 if nothing was executed yet
+     */
+    public synchronized double getAverageWait() {
+        return count == 0 ? 0 : totalNanos / 1_000_000d / count;
+    }
+
+    /**
+     * Longest wait time in milliseconds.
+     *
+     * @return wait time or 0 if nothing was executed yet
+     */
+    public synchronized double getMaxWait() {
+        return maxNanos / 1_000_000d;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [count=" + getCount() + ", averageWait=" + String.format("%.1f", getAverageWait())
+                + ", maxWait=" + String.format("%.1f", getMaxWait()) + "]";
+    }
+}
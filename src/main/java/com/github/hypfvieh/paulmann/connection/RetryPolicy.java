@@ -0,0 +1,92 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import org.bluez.exceptions.BluezInvalidOffsetException;
+import org.bluez.exceptions.BluezInvalidValueLengthException;
+import org.bluez.exceptions.BluezNotAuthorizedException;
+import org.bluez.exceptions.BluezNotPermittedException;
+import org.bluez.exceptions.BluezNotSupportedException;
+
+/**
+ * Defines how often and with which delay failed device operations are retried.
+ * <br>
+ * The delay grows exponentially with each attempt: initialDelay * multiplier^(attempt - 1), capped at maxDelay.
+ * Only transient errors are retried, errors which will fail again (e.g. unsupported operation, invalid value)
+ * are returned immediately.
+ *
+ * @author David M.
+ */
+public class RetryPolicy {
+    /** Do not retry at all. */
+    public static final RetryPolicy NO_RETRY = new RetryPolicy(1, 0, 1, 0);
+    /** Default policy: 3 attempts, starting with 100 ms delay. */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 100, 2, 2000);
+
+    private final int maxAttempts;
+    private final long initialDelayMs;
+    private final double multiplier;
+    private final long maxDelayMs;
+
+    /**
+     * Create a new policy.
+     *
+     * @param _maxAttempts total number of attempts (including the first one), at least 1
+     * @param _initialDelayMs delay before the first retry in milliseconds
+     * @param _multiplier factor applied to the delay after each retry
+     * @param _maxDelayMs maximum delay between two attempts in milliseconds
+     */
+    public RetryPolicy(int _maxAttempts, long _initialDelayMs, double _multiplier, long _maxDelayMs) {
+        maxAttempts = Math.max(1, _maxAttempts);
+        initialDelayMs = Math.max(0, _initialDelayMs);
+        multiplier = Math.max(1, _multiplier);
+        maxDelayMs = Math.max(initialDelayMs, _maxDelayMs);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getInitialDelayMs() {
+        return initialDelayMs;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    /**
+     * Delay to wait before the given retry.
+     *
+     * @param _retry number of the retry, starting with 1
+     * @return delay in milliseconds
+     */
+    public long getDelay(int _retry) {
+        double delay = initialDelayMs * Math.pow(multiplier, Math.max(0, _retry - 1));
+        return (long) Math.min(maxDelayMs, delay);
+    }
+
+    /**
+     * Check if the given error may succeed when retried.
+     * A {@link DeviceUnavailableException} (failed connect or open circuit) is never retried.
+     *
+     * @param _ex error to check
+     * @return true if error is transient
+     */
+    public boolean isTransient(Exception _ex) {
+        return !(_ex instanceof DeviceUnavailableException
+                || _ex instanceof BluezNotSupportedException
+                || _ex instanceof BluezNotAuthorizedException
+                || _ex instanceof BluezNotPermittedException
+                || _ex instanceof BluezInvalidValueLengthException
+                || _ex instanceof BluezInvalidOffsetException);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [maxAttempts=" + maxAttempts + ", initialDelayMs=" + initialDelayMs
+                + ", multiplier=" + multiplier + ", maxDelayMs=" + maxDelayMs + "]";
+    }
+}
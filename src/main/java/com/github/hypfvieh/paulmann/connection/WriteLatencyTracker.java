@@ -0,0 +1,80 @@
+package com.github.hypfvieh.paulmann.connection;
+
+/**
+ * Tracks the write completion time of a device and derives the window used to coalesce cached writes.
+ * <br>
+ * The latency is an exponentially weighted moving average of all recorded writes.
+ * The window is slightly larger than the average latency, so cached writes are never sent faster
+ * than the device is able to process them.
+ *
+ * @author David M.
+ */
+public class WriteLatencyTracker {
+    public static final long DEFAULT_WINDOW_MS = 200L;
+    public static final long MIN_WINDOW_MS = 20L;
+    public static final long MAX_WINDOW_MS = 1000L;
+
+    /** weight of a new sample in the moving average */
+    private static final double SMOOTHING = 0.2d;
+    /** headroom added on top of the measured latency */
+    private static final double WINDOW_FACTOR = 1.25d;
+
+    private double averageLatencyMs = -1;
+    private long samples;
+
+    WriteLatencyTracker() {
+    }
+
+    /**
+     * Record the completion time of a write.
+     *
+     * @param _latencyNanos time the write took in nanoseconds
+     */
+    public synchronized void record(long _latencyNanos) {
+        double latencyMs = _latencyNanos / 1_000_000d;
+        if (averageLatencyMs < 0) {
+            averageLatencyMs = latencyMs;
+        } else {
+            averageLatencyMs += SMOOTHING * (latencyMs - averageLatencyMs);
+        }
+        samples++;
+    }
+
+    /**
+     * Average write latency in milliseconds.
+     *
+     * @return latency or -1 if nothing was measured yet
+     */
+    public synchronized long getAverageLatency() {
+        return averageLatencyMs < 0 ? -1 : Math.round(averageLatencyMs);
+    }
+
+    /**
+     * Current window in milliseconds to use for coalescing cached writes.
+     * Returns {@link #DEFAULT_WINDOW_MS} until the first write was measured.
+     *
+     * @return window in milliseconds
+     */
+    public synchronized long getWindow() {
+        if (averageLatencyMs < 0) {
+            return DEFAULT_WINDOW_MS;
+        }
+        long window = Math.round(averageLatencyMs * WINDOW_FACTOR);
+        return Math.max(MIN_WINDOW_MS, Math.min(MAX_WINDOW_MS, window));
+    }
+
+    /**
+     * Number of recorded writes.
+     *
+     * @return long
+     */
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [averageLatency=" + getAverageLatency() + ", window=" + getWindow()
+                + ", samples=" + getSamples() + "]";
+    }
+}
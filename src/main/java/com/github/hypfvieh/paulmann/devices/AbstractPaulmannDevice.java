@@ -2,20 +2,29 @@ package com.github.hypfvieh.paulmann.devices;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+import com.github.hypfvieh.paulmann.connection.CommandPriority;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
 import com.github.hypfvieh.paulmann.features.AbstractFeature;
 import com.github.hypfvieh.paulmann.features.FeatureFactory;
 import com.github.hypfvieh.paulmann.features.FeatureIdent;
+import com.github.hypfvieh.paulmann.features.GattCharacteristicIndex;
 
 /**
  * Base class of all Paulmann devices.
+ * <br>
+ * Features are created on first use (see {@link #getFeature(FeatureIdent)}), so creating a device
+ * does not enumerate any GATT characteristics. Use {@link #prewarmFeatures()} or
+ * {@link #prewarmFeatures(FeatureIdent...)} to create features up front.
  *
  * @author David M.
  *
@@ -24,56 +33,187 @@ public abstract class AbstractPaulmannDevice {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private Map<FeatureIdent<? extends AbstractFeature>, AbstractFeature> configuredFeatures = new LinkedHashMap<>();
+    /** Created features, guarded by this map */
+    private final Map<FeatureIdent<? extends AbstractFeature>, AbstractFeature> configuredFeatures = new LinkedHashMap<>();
+    /** Features whose characteristic is not present on the resolved service, guarded by configuredFeatures */
+    private final Set<FeatureIdent<?>> unavailableFeatures = new HashSet<>();
+
+    private final FeatureIdent<?>[] featureIdents;
+    /** Characteristics of the service, created with the first feature and guarded by configuredFeatures */
+    private GattCharacteristicIndex characteristicIndex;
+
+    private volatile long cacheTtl;
 
     private final BluetoothDevice device;
     private final BluetoothGattService gattService;
 
     protected AbstractPaulmannDevice(BluetoothGattService _gattService) {
-        device = _gattService.getDevice();
-        gattService = _gattService;
+        this(_gattService, new FeatureIdent<?>[0]);
     }
 
     protected AbstractPaulmannDevice(BluetoothGattService _gattService, FeatureIdent<?>... _featureIdent) {
-        this(_gattService);
-        for (FeatureIdent<?> featureIdent : _featureIdent) {
-            AbstractFeature feature = FeatureFactory.getInstance().createFeature(featureIdent,
-                    _gattService);
-            if (feature == null) {
-                getLogger().warn("Cannot enable supported feature {}, unable to create instance", featureIdent.getName());
-            } else {
-                configuredFeatures.put(featureIdent, feature);
-            }
-        }
+        device = _gattService.getDevice();
+        gattService = _gattService;
+        featureIdents = _featureIdent == null ? new FeatureIdent<?>[0] : _featureIdent.clone();
     }
 
     /**
      * Returns a unmodifiable Map of all configured subDevices/features.
+     * Only contains the features which were already created, this call never connects to the device.
+     * Use {@link #prewarmFeatures()} to create all features first.
+     *
      * @return unmodifiable map of {@link FeatureIdent} / {@link AbstractFeature}
      */
     public Map<FeatureIdent<?>, AbstractFeature> getConfiguredFeatures() {
-        return Collections.unmodifiableMap(configuredFeatures);
+        synchronized (configuredFeatures) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(configuredFeatures));
+        }
     }
 
     /**
-     * Get feature by given {@link FeatureIdent};
+     * Creates all features supported by this device now instead of on first use.
+     * Connects to the device if the GATT characteristics were not indexed yet.
+     *
+     * @return number of supported features which are available
+     */
+    public int prewarmFeatures() {
+        return prewarmFeatures(featureIdents);
+    }
+
+    /**
+     * Creates the given features now instead of on first use.
+     * Useful to move the feature creation out of time critical code.
+     *
+     * @param _idents features to create
+     * @return number of requested features which are available
+     */
+    public int prewarmFeatures(FeatureIdent<?>... _idents) {
+        int available = 0;
+        if (_idents == null) {
+            return available;
+        }
+        for (FeatureIdent<?> ident : _idents) {
+            if (getOrCreateFeature(ident) != null) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Get feature by given {@link FeatureIdent}.
+     * The feature is created on the first call.
+     *
      * @param _ident {@link FeatureIdent} to retrieve
      * @param <T> some class extending {@link AbstractFeature}
-     * @return {@link AbstractFeature} compatible object
+     * @return {@link AbstractFeature} compatible object or null if feature is not available
      */
     public <T extends AbstractFeature> T getFeature(FeatureIdent<T> _ident) {
-        if (configuredFeatures == null || configuredFeatures.isEmpty()) {
-            return null;
-        }
-        AbstractFeature abstractBluetoothFeature = configuredFeatures.get(_ident);
+        AbstractFeature abstractBluetoothFeature = getOrCreateFeature(_ident);
 
-        if (abstractBluetoothFeature.getClass().isAssignableFrom(_ident.getDeviceClass())) {
+        if (abstractBluetoothFeature != null
+                && abstractBluetoothFeature.getClass().isAssignableFrom(_ident.getDeviceClass())) {
             return _ident.getDeviceClass().cast(abstractBluetoothFeature);
         }
 
         return null;
     }
 
+    /**
+     * Returns the feature instance of the given ident, creating it if required.
+     * <br>
+     * A feature is only remembered as unavailable if its characteristic is missing on the resolved service.
+     * If the characteristics could not be read (e.g. device not connected), creation is tried again on the next call.
+     *
+     * @param _ident feature
+     * @return feature or null if not supported by this device or creation failed
+     */
+    private AbstractFeature getOrCreateFeature(FeatureIdent<?> _ident) {
+        if (_ident == null || !Arrays.asList(featureIdents).contains(_ident)) {
+            return null;
+        }
+        GattCharacteristicIndex index;
+        synchronized (configuredFeatures) {
+            AbstractFeature feature = configuredFeatures.get(_ident);
+            if (feature != null || unavailableFeatures.contains(_ident)) {
+                return feature;
+            }
+            index = characteristicIndex;
+        }
+        if (index == null) {
+            // read outside of the lock, the command queue may call back into this device
+            index = loadCharacteristicIndex();
+            if (index == null) {
+                return null;
+            }
+        }
+        synchronized (configuredFeatures) {
+            if (characteristicIndex == null) {
+                characteristicIndex = index;
+            }
+            AbstractFeature feature = configuredFeatures.get(_ident);
+            if (feature != null || unavailableFeatures.contains(_ident)) {
+                return feature;
+            }
+            feature = FeatureFactory.getInstance().createFeature(_ident, characteristicIndex);
+            if (feature == null) {
+                getLogger().warn("Cannot enable supported feature {}, unable to create instance", _ident.getName());
+                if (characteristicIndex.get(_ident.getCharId()) == null) {
+                    unavailableFeatures.add(_ident);
+                }
+                return null;
+            }
+            feature.setCacheTtl(cacheTtl);
+            configuredFeatures.put(_ident, feature);
+            return feature;
+        }
+    }
+
+    /**
+     * Reads the characteristics of the GATT service using the connection of this device.
+     *
+     * @return index or null if the device could not be connected or its services are not resolved yet
+     */
+    private GattCharacteristicIndex loadCharacteristicIndex() {
+        try {
+            GattCharacteristicIndex index = ConnectionManager.getInstance().getSession(device)
+                    .executeQueued(CommandPriority.current(), () -> GattCharacteristicIndex.of(gattService));
+            if (index.size() == 0) {
+                getLogger().debug("GATT service of {} not resolved yet", device.getAddress());
+                return null;
+            }
+            return index;
+        } catch (Exception _ex) {
+            getLogger().debug("Could not read GATT characteristics of {}", device.getAddress(), _ex);
+            return null;
+        }
+    }
+
+    /**
+     * Setup the value cache time-to-live of all configured features.
+     * Features created later will use the same setting.
+     *
+     * @param _ttlMs time-to-live in milliseconds, 0 to disable caching
+     * @see AbstractFeature#setCacheTtl(long)
+     */
+    public void setCacheTtl(long _ttlMs) {
+        synchronized (configuredFeatures) {
+            cacheTtl = _ttlMs;
+            for (AbstractFeature feature : configuredFeatures.values()) {
+                feature.setCacheTtl(_ttlMs);
+            }
+        }
+    }
+
+    /**
+     * Starts a new transaction which will send all collected feature writes using a single connection.
+     *
+     * @return new {@link DeviceTransaction}
+     */
+    public DeviceTransaction beginTransaction() {
+        return new DeviceTransaction(this);
+    }
+
     /**
      * Returns the bluetooth raw-device behind this instance.
      * @return device
@@ -141,17 +281,6 @@ public abstract class AbstractPaulmannDevice {
         return Arrays.asList(getAllSupportedFeatures()).contains(_ident);
     }
 
-    /**
-     * Cleanup bluetooth connection if object is garbage collected.
-     */
-    @Override
-    protected void finalize() throws Throwable {
-        if (device.isConnected()) {
-            device.disconnect(); // disconnect device if our device wrapper is garbage collected
-        }
-        super.finalize();
-    }
-
     @Override
     public String toString() {
         return getClass().getSimpleName() + "[logger=" + logger + ", subDevices=" + configuredFeatures + ", device=" + device
@@ -1,7 +1,13 @@
 package com.github.hypfvieh.paulmann.devices;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +17,9 @@ import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
 
 /**
  * Factory to create Paulmann Device class instances based on the given GATT Service.
+ * <br>
+ * Devices are selected by their bluetooth alias. Additional device models can be registered using
+ * {@link #register(String, Function)} or by providing a {@link PaulmannDeviceProvider} service.
  *
  * @author David M.
  *
@@ -19,21 +28,73 @@ public class DeviceFactory {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final Map<String, Class<? extends AbstractPaulmannDevice>> deviceClasses = new LinkedHashMap<>();
+    /** Map of device alias -> constructor, in order of registration */
+    private final Map<String, Function<BluetoothGattService, ? extends AbstractPaulmannDevice>> deviceConstructors =
+            Collections.synchronizedMap(new LinkedHashMap<>());
 
     private static final DeviceFactory INSTANCE = new DeviceFactory();
 
     private DeviceFactory() {
-        deviceClasses.put(LampW.DEVICE_ALIAS, LampW.class);
-        deviceClasses.put(LampWC.DEVICE_ALIAS, LampWC.class);
-        deviceClasses.put(LampRGB.DEVICE_ALIAS, LampRGB.class);
-        deviceClasses.put(LampRGBW.DEVICE_ALIAS, LampRGBW.class);
+        register(LampW.DEVICE_ALIAS, LampW::new);
+        register(LampWC.DEVICE_ALIAS, LampWC::new);
+        register(LampRGB.DEVICE_ALIAS, LampRGB::new);
+        register(LampRGBW.DEVICE_ALIAS, LampRGBW::new);
+        loadProviders();
     }
 
     public static DeviceFactory getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * Registers all {@link PaulmannDeviceProvider}s found on the classpath.
+     */
+    private void loadProviders() {
+        try {
+            for (PaulmannDeviceProvider provider : ServiceLoader.load(PaulmannDeviceProvider.class)) {
+                logger.debug("Registering device provider {} for alias {}", provider.getClass().getName(), provider.getDeviceAlias());
+                register(provider.getDeviceAlias(), provider::createDevice);
+            }
+        } catch (ServiceConfigurationError _ex) {
+            logger.warn("Could not load device providers.", _ex);
+        }
+    }
+
+    /**
+     * Registers the constructor used for devices with the given alias.
+     * A previously registered constructor for the same alias is replaced.
+     *
+     * @param _alias bluetooth alias of the device
+     * @param _constructor function creating the device from its GATT service
+     */
+    public void register(String _alias, Function<BluetoothGattService, ? extends AbstractPaulmannDevice> _constructor) {
+        if (_alias == null || _constructor == null) {
+            return;
+        }
+        deviceConstructors.put(_alias, _constructor);
+    }
+
+    /**
+     * Check if a device with the given alias can be created.
+     *
+     * @param _alias bluetooth alias
+     * @return true if supported
+     */
+    public boolean isSupported(String _alias) {
+        return _alias != null && deviceConstructors.containsKey(_alias);
+    }
+
+    /**
+     * Returns the aliases of all supported devices in order of registration.
+     *
+     * @return list, maybe empty but never null
+     */
+    public List<String> getSupportedAliases() {
+        synchronized (deviceConstructors) {
+            return new ArrayList<>(deviceConstructors.keySet());
+        }
+    }
+
     /**
      * Create the concreate implementation of {@link AbstractPaulmannDevice} based on the given _gattService.
      *
@@ -45,14 +106,27 @@ public class DeviceFactory {
             return null;
         }
         BluetoothDevice device = _gattService.getDevice();
-        if (deviceClasses.containsKey(device.getAlias())) {
+        return createDevice(device.getAlias(), _gattService);
+    }
 
-            Class<? extends AbstractPaulmannDevice> instanceClass = deviceClasses.get(device.getAlias());
+    /**
+     * Create the concreate implementation of {@link AbstractPaulmannDevice} for the given alias.
+     * Use this if the alias is already known, so it does not have to be read from the device.
+     *
+     * @param _alias bluetooth alias of the device
+     * @param _gattService to create device
+     * @return concrete implementation object or null on error
+     */
+    public AbstractPaulmannDevice createDevice(String _alias, BluetoothGattService _gattService) {
+        if (_alias == null || _gattService == null) {
+            return null;
+        }
+        Function<BluetoothGattService, ? extends AbstractPaulmannDevice> constructor = deviceConstructors.get(_alias);
+        if (constructor != null) {
             try {
-                AbstractPaulmannDevice newInstance = instanceClass.getConstructor(BluetoothGattService.class).newInstance(_gattService);
-                return newInstance;
+                return constructor.apply(_gattService);
             } catch (Exception _ex) {
-                logger.warn("Could not instanciate class " + instanceClass, _ex);
+                logger.warn("Could not create device for alias " + _alias, _ex);
             }
         }
         return null;
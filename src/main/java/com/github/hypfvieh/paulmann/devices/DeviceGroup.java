@@ -0,0 +1,414 @@
+package com.github.hypfvieh.paulmann.devices;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.features.AbstractFeature;
+import com.github.hypfvieh.paulmann.features.FeatureIdent;
+
+/**
+ * Group of devices which receive the same command.
+ * <br>
+ * Commands are queued in the command queue of every member at once, so all devices are addressed in parallel
+ * and the group takes about as long as its slowest member. Members which did not finish within the
+ * deadline are reported as {@link OutcomeStatus#TIMEOUT}; if their command did not start before the deadline
+ * it is skipped.
+ *
+ * @author David M.
+ */
+public class DeviceGroup {
+    public static final long DEFAULT_DEADLINE_MS = 10000L;
+
+    /** Map of MAC address -> device */
+    private final Map<String, AbstractPaulmannDevice> members = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    private volatile long deadline = DEFAULT_DEADLINE_MS;
+
+    public DeviceGroup() {
+    }
+
+    public DeviceGroup(Collection<? extends AbstractPaulmannDevice> _devices) {
+        if (_devices != null) {
+            for (AbstractPaulmannDevice device : _devices) {
+                add(device);
+            }
+        }
+    }
+
+    /**
+     * Add a device to the group.
+     *
+     * @param _device device to add
+     * @return this
+     */
+    public DeviceGroup add(AbstractPaulmannDevice _device) {
+        if (_device != null) {
+            members.put(_device.getDevice().getAddress(), _device);
+        }
+        return this;
+    }
+
+    /**
+     * Remove a device from the group.
+     *
+     * @param _device device to remove
+     * @return this
+     */
+    public DeviceGroup remove(AbstractPaulmannDevice _device) {
+        if (_device != null) {
+            members.remove(_device.getDevice().getAddress());
+        }
+        return this;
+    }
+
+    /**
+     * Members of this group.
+     *
+     * @return unmodifiable list of devices
+     */
+    public List<AbstractPaulmannDevice> getDevices() {
+        synchronized (members) {
+            return Collections.unmodifiableList(new ArrayList<>(members.values()));
+        }
+    }
+
+    /**
+     * Setup the time in milliseconds all members have to finish a command.
+     *
+     * @param _deadlineMs deadline in milliseconds
+     */
+    public void setDeadline(long _deadlineMs) {
+        deadline = _deadlineMs;
+    }
+
+    /**
+     * Time in milliseconds all members have to finish a command.
+     *
+     * @return deadline
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Execute an operation on the given feature of every member.
+     * Members which do not support the feature are reported as {@link OutcomeStatus#UNSUPPORTED}.
+     *
+     * @param _ident feature to use
+     * @param _operation operation to execute (e.g. {@code f -> f.toggle(false)}), should return true on success
+     * @param <T> feature type
+     * @return {@link Result} with the outcome of every member
+     */
+    public <T extends AbstractFeature> Result execute(FeatureIdent<T> _ident, Predicate<T> _operation) {
+        return execute(new FeatureCommand<>(_ident, _operation));
+    }
+
+    /**
+     * Execute an operation on every member.
+     *
+     * @param _operation operation to execute, should return true on success
+     * @return {@link Result} with the outcome of every member
+     */
+    public Result execute(Predicate<AbstractPaulmannDevice> _operation) {
+        long start = System.currentTimeMillis();
+        long deadlineAt = start + deadline;
+
+        Map<String, CompletableFuture<Outcome>> pending = new LinkedHashMap<>();
+        for (AbstractPaulmannDevice device : getDevices()) {
+            String mac = device.getDevice().getAddress();
+            pending.put(mac, ConnectionManager.getInstance().getSession(device.getDevice()).getCommandQueue()
+                    .submit(() -> executeOn(device, _operation, start, deadlineAt)));
+        }
+
+        Result result = new Result(System.currentTimeMillis() - start);
+        for (Entry<String, CompletableFuture<Outcome>> entry : pending.entrySet()) {
+            long remaining = deadlineAt - System.currentTimeMillis();
+            try {
+                result.add(entry.getKey(), entry.getValue().get(Math.max(0, remaining), TimeUnit.MILLISECONDS));
+            } catch (TimeoutException _ex) {
+                result.add(entry.getKey(), new Outcome(OutcomeStatus.TIMEOUT, null, deadline));
+            } catch (ExecutionException _ex) {
+                result.add(entry.getKey(), new Outcome(OutcomeStatus.FAILED, _ex.getCause(),
+                        System.currentTimeMillis() - start));
+            } catch (InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+                result.add(entry.getKey(), new Outcome(OutcomeStatus.TIMEOUT, _ex, System.currentTimeMillis() - start));
+            }
+        }
+        return result;
+    }
+
+    private static Outcome executeOn(AbstractPaulmannDevice _device, Predicate<AbstractPaulmannDevice> _operation,
+            long _start, long _deadlineAt) {
+        if (System.currentTimeMillis() > _deadlineAt) {
+            return new Outcome(OutcomeStatus.TIMEOUT, null, System.currentTimeMillis() - _start); // skipped
+        }
+        try {
+            boolean success = _operation.test(_device);
+            return new Outcome(success ? OutcomeStatus.SUCCESS : OutcomeStatus.FAILED, null,
+                    System.currentTimeMillis() - _start);
+        } catch (UnsupportedFeatureException _ex) {
+            return new Outcome(OutcomeStatus.UNSUPPORTED, null, System.currentTimeMillis() - _start);
+        } catch (Exception _ex) {
+            return new Outcome(OutcomeStatus.FAILED, _ex, System.currentTimeMillis() - _start);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [members=" + members.keySet() + ", deadline=" + deadline + "]";
+    }
+
+    /**
+     * Runs an operation on a single feature and keeps the last error of the feature on failure.
+     */
+    private static class FeatureCommand<T extends AbstractFeature> implements Predicate<AbstractPaulmannDevice> {
+        private final FeatureIdent<T> ident;
+        private final Predicate<T> operation;
+
+        FeatureCommand(FeatureIdent<T> _ident, Predicate<T> _operation) {
+            ident = _ident;
+            operation = _operation;
+        }
+
+        @Override
+        public boolean test(AbstractPaulmannDevice _device) {
+            T feature = _device.getFeature(ident);
+            if (feature == null) {
+                throw new UnsupportedFeatureException();
+            }
+            if (operation.test(feature)) {
+                return true;
+            }
+            Exception error = feature.getLastError();
+            if (error != null) {
+                throw new FeatureFailedException(error);
+            }
+            return false;
+        }
+    }
+
+    /** Thrown by {@link FeatureCommand} if a member does not support the feature. */
+    private static class UnsupportedFeatureException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Thrown by {@link FeatureCommand} to pass the last error of the feature to the outcome. */
+    private static class FeatureFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        FeatureFailedException(Exception _cause) {
+            super(_cause.getMessage(), _cause);
+        }
+    }
+
+    /**
+     * Outcome of a group command on a single device.
+     */
+    public static enum OutcomeStatus {
+        /** Command was successful. */
+        SUCCESS,
+        /** Command failed. */
+        FAILED,
+        /** Device does not support the used feature. */
+        UNSUPPORTED,
+        /** Command did not finish within the deadline. */
+        TIMEOUT;
+    }
+
+    /**
+     * Outcome and latency of a group command on a single device.
+     *
+     * @author David M.
+     */
+    public static class Outcome {
+        private final OutcomeStatus status;
+        private final Throwable error;
+        private final long latencyMs;
+
+        Outcome(OutcomeStatus _status, Throwable _error, long _latencyMs) {
+            status = _status;
+            error = _error instanceof FeatureFailedException ? _error.getCause() : _error;
+            latencyMs = _latencyMs;
+        }
+
+        public OutcomeStatus getStatus() {
+            return status;
+        }
+
+        /**
+         * Error which caused the command to fail (if any).
+         * @return Throwable, maybe null
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * Time in milliseconds from the start of the group command until this device was done.
+         * @return long
+         */
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        public boolean isSuccessful() {
+            return status == OutcomeStatus.SUCCESS;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " [status=" + status + ", latencyMs=" + latencyMs + ", error=" + error + "]";
+        }
+    }
+
+    /**
+     * Result of a group command with the outcome of every member and a latency summary.
+     *
+     * @author David M.
+     */
+    public static class Result {
+        private final Map<String, Outcome> outcomes = new LinkedHashMap<>();
+        private final long dispatchMs;
+
+        Result(long _dispatchMs) {
+            dispatchMs = _dispatchMs;
+        }
+
+        private void add(String _macAddr, Outcome _outcome) {
+            outcomes.put(_macAddr, _outcome);
+        }
+
+        /**
+         * Outcome of each member.
+         *
+         * @return unmodifiable map of MAC address / {@link Outcome}
+         */
+        public Map<String, Outcome> getOutcomes() {
+            return Collections.unmodifiableMap(outcomes);
+        }
+
+        /**
+         * Number of members with the given outcome.
+         *
+         * @param _status status to count
+         * @return int
+         */
+        public int count(OutcomeStatus _status) {
+            int count = 0;
+            for (Outcome outcome : outcomes.values()) {
+                if (outcome.getStatus() == _status) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Check if the command was successful on all members.
+         *
+         * @return true if every member succeeded
+         */
+        public boolean isSuccessful() {
+            return count(OutcomeStatus.SUCCESS) == outcomes.size();
+        }
+
+        /**
+         * Time in milliseconds it took to queue the command for all members.
+         *
+         * @return long
+         */
+        public long getDispatchMs() {
+            return dispatchMs;
+        }
+
+        /**
+         * Lowest latency of all finished members.
+         *
+         * @return latency in milliseconds, -1 if no member finished
+         */
+        public long getMinLatencyMs() {
+            List<Long> latencies = getFinishedLatencies();
+            return latencies.isEmpty() ? -1 : latencies.get(0);
+        }
+
+        /**
+         * Highest latency of all finished members, which is about the time the whole group command took.
+         *
+         * @return latency in milliseconds, -1 if no member finished
+         */
+        public long getMaxLatencyMs() {
+            List<Long> latencies = getFinishedLatencies();
+            return latencies.isEmpty() ? -1 : latencies.get(latencies.size() - 1);
+        }
+
+        /**
+         * Average latency of all finished members.
+         *
+         * @return latency in milliseconds, -1 if no member finished
+         */
+        public long getAverageLatencyMs() {
+            List<Long> latencies = getFinishedLatencies();
+            if (latencies.isEmpty()) {
+                return -1;
+            }
+            long sum = 0;
+            for (Long latency : latencies) {
+                sum += latency;
+            }
+            return sum / latencies.size();
+        }
+
+        /**
+         * Latency percentile of all finished members (e.g. 95 for the latency 95% of the members stayed below).
+         *
+         * @param _percentile percentile between 0 and 100
+         * @return latency in milliseconds, -1 if no member finished
+         */
+        public long getLatencyPercentileMs(double _percentile) {
+            List<Long> latencies = getFinishedLatencies();
+            if (latencies.isEmpty()) {
+                return -1;
+            }
+            double p = Math.min(100, Math.max(0, _percentile));
+            int idx = (int) Math.ceil(p / 100 * latencies.size()) - 1;
+            return latencies.get(Math.max(0, idx));
+        }
+
+        /**
+         * Latencies of all members which sent the command, sorted ascending.
+         * Unsupported members never talked to the device and timed out members have no real latency, so both are skipped.
+         *
+         * @return list, maybe empty
+         */
+        private List<Long> getFinishedLatencies() {
+            List<Long> latencies = new ArrayList<>();
+            for (Outcome outcome : outcomes.values()) {
+                if (outcome.getStatus() == OutcomeStatus.SUCCESS || outcome.getStatus() == OutcomeStatus.FAILED) {
+                    latencies.add(outcome.getLatencyMs());
+                }
+            }
+            Collections.sort(latencies);
+            return latencies;
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " [success=" + count(OutcomeStatus.SUCCESS) + ", failed="
+                    + count(OutcomeStatus.FAILED) + ", unsupported=" + count(OutcomeStatus.UNSUPPORTED) + ", timeout="
+                    + count(OutcomeStatus.TIMEOUT) + ", minLatencyMs=" + getMinLatencyMs() + ", avgLatencyMs="
+                    + getAverageLatencyMs() + ", maxLatencyMs=" + getMaxLatencyMs() + ", outcomes=" + outcomes + "]";
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.hypfvieh.paulmann.devices;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.connection.DeviceSession;
+import com.github.hypfvieh.paulmann.features.AbstractFeature;
+import com.github.hypfvieh.paulmann.features.FeatureIdent;
+
+/**
+ * Collects write operations for multiple features of a device and executes them using a single connection.
+ * <br>
+ * All operations of a transaction are executed as one command in the command queue of the device,
+ * so no other command will be executed in between.
+ * Use {@link AbstractPaulmannDevice#beginTransaction()} to create a transaction.
+ *
+ * @author David M.
+ */
+public class DeviceTransaction {
+
+    private final AbstractPaulmannDevice device;
+    private final List<Operation<?>> operations = new ArrayList<>();
+
+    DeviceTransaction(AbstractPaulmannDevice _device) {
+        device = _device;
+    }
+
+    /**
+     * Add a raw write of the given value to the characteristic of the given feature.
+     *
+     * @param _ident feature to write
+     * @param _value value to write
+     * @return this
+     */
+    public DeviceTransaction write(FeatureIdent<?> _ident, byte[] _value) {
+        operations.add(new Operation<AbstractFeature>(_ident, f -> f.writeValue(_value)));
+        return this;
+    }
+
+    /**
+     * Add an operation on the given feature.
+     * The operation may use all methods of the feature (e.g. {@code f -> f.writeByte(50)}),
+     * it should return true on success.
+     *
+     * @param _ident feature to use
+     * @param _operation operation to execute
+     * @param <T> feature type
+     * @return this
+     */
+    public <T extends AbstractFeature> DeviceTransaction add(FeatureIdent<T> _ident, Predicate<T> _operation) {
+        operations.add(new Operation<>(_ident, _operation));
+        return this;
+    }
+
+    /**
+     * Execute all collected operations and wait for the result.
+     * If called from within another command of the device, the operations are executed directly.
+     *
+     * @return {@link Result}
+     */
+    public Result commit() {
+        List<Operation<?>> ops = new ArrayList<>(operations);
+        DeviceSession session = ConnectionManager.getInstance().getSession(device.getDevice());
+        return session.getCommandQueue().execute(() -> execute(session, ops));
+    }
+
+    /**
+     * Execute all collected operations without blocking the caller.
+     *
+     * @return future completed with the {@link Result}
+     */
+    public CompletableFuture<Result> commitAsync() {
+        List<Operation<?>> ops = new ArrayList<>(operations);
+        DeviceSession session = ConnectionManager.getInstance().getSession(device.getDevice());
+        return session.getCommandQueue().submit(() -> execute(session, ops));
+    }
+
+    private Result execute(DeviceSession _session, List<Operation<?>> _ops) {
+        Result result = new Result();
+        if (!_session.acquire()) { // failed connect is recorded in the circuit breaker by acquire()
+            for (Operation<?> op : _ops) {
+                result.add(op.ident, false, null);
+            }
+            return result;
+        }
+        try {
+            for (Operation<?> op : _ops) {
+                op.execute(device, result);
+            }
+        } finally {
+            _session.release();
+        }
+        return result;
+    }
+
+    /**
+     * Number of collected operations.
+     *
+     * @return int
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    private static class Operation<T extends AbstractFeature> {
+        private final FeatureIdent<?> ident;
+        private final Predicate<T> operation;
+
+        Operation(FeatureIdent<?> _ident, Predicate<T> _operation) {
+            ident = _ident;
+            operation = _operation;
+        }
+
+        @SuppressWarnings("unchecked")
+        void execute(AbstractPaulmannDevice _device, Result _result) {
+            T feature = (T) _device.getFeature(ident);
+            if (feature == null) {
+                _result.add(ident, false, null);
+                return;
+            }
+            try {
+                boolean success = operation.test(feature);
+                _result.add(ident, success, success ? null : feature.getLastError());
+            } catch (Exception _ex) {
+                _result.add(ident, false, _ex);
+            }
+        }
+    }
+
+    /**
+     * Result of a transaction with the outcome of each feature operation.
+     *
+     * @author David M.
+     */
+    public static class Result {
+        private final Map<FeatureIdent<?>, Boolean> results = new LinkedHashMap<>();
+        private final Map<FeatureIdent<?>, Exception> errors = new LinkedHashMap<>();
+
+        private void add(FeatureIdent<?> _ident, boolean _success, Exception _error) {
+            results.put(_ident, _success);
+            if (_error != null) {
+                errors.put(_ident, _error);
+            }
+        }
+
+        /**
+         * Result of each feature operation, in order of execution.
+         *
+         * @return unmodifiable map of {@link FeatureIdent} / success
+         */
+        public Map<FeatureIdent<?>, Boolean> getResults() {
+            return Collections.unmodifiableMap(results);
+        }
+
+        /**
+         * Errors raised by failed feature operations (if any).
+         *
+         * @return unmodifiable map of {@link FeatureIdent} / exception
+         */
+        public Map<FeatureIdent<?>, Exception> getErrors() {
+            return Collections.unmodifiableMap(errors);
+        }
+
+        /**
+         * Check if all operations were successful.
+         *
+         * @return true if every operation succeeded
+         */
+        public boolean isSuccessful() {
+            return !results.containsValue(Boolean.FALSE);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + " [results=" + results + ", errors=" + errors + "]";
+        }
+    }
+}
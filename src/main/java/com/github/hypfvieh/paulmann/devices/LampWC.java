@@ -12,7 +12,7 @@ public class LampWC extends AbstractPaulmannDevice {
     public static final FeatureIdent<?>[] SUPPORTED_FEATURES = {
             FeatureIdent.PAULMANN_BRIGHTNESS_FEATURE,
             FeatureIdent.PAULMANN_ON_OFF_FEATURE,
-            FeatureIdent.PAULMANN_COLORTEMP_RGBW_FEATURE,
+            FeatureIdent.PAULMANN_COLORTEMP_WCLAMP_FEATURE,
             FeatureIdent.PAULMANN_SYSTEMTIME_FEATURE,
             FeatureIdent.PAULMANN_REMOTECONTROLMODE_FEATURE,
             FeatureIdent.PAULMANN_TIMER_FEATURE,
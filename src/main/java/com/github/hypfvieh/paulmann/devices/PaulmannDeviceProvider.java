@@ -0,0 +1,30 @@
+package com.github.hypfvieh.paulmann.devices;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+
+/**
+ * Service provider interface to add support for additional Paulmann device models.
+ * <br>
+ * Implementations are found using {@link java.util.ServiceLoader}, so they have to be listed in
+ * <code>META-INF/services/com.github.hypfvieh.paulmann.devices.PaulmannDeviceProvider</code>.
+ * Providers can also be added at runtime using {@link DeviceFactory#register(String, java.util.function.Function)}.
+ *
+ * @author David M.
+ */
+public interface PaulmannDeviceProvider {
+
+    /**
+     * Bluetooth alias of the devices created by this provider (e.g. "Lamp-RGB").
+     *
+     * @return alias, never null
+     */
+    String getDeviceAlias();
+
+    /**
+     * Creates the device instance for the given GATT service.
+     *
+     * @param _gattService Paulmann GATT service of the device
+     * @return device instance, null if the service is not supported
+     */
+    AbstractPaulmannDevice createDevice(BluetoothGattService _gattService);
+}
@@ -1,5 +1,7 @@
 package com.github.hypfvieh.paulmann.features;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 /**
@@ -29,6 +31,16 @@ public abstract class AbstractByteValFeature extends AbstractFeature {
         return writeValue(byteToByteArray(_value));
     }
 
+    /**
+     * Write a byte value without blocking the caller.
+     *
+     * @param _value to write
+     * @return future completed with true on successful write, false otherwise
+     */
+    public CompletableFuture<Boolean> writeByteAsync(byte _value) {
+        return submit(() -> writeByte(_value));
+    }
+
     /**
      * Use cached write to send the value.
      *
@@ -42,22 +54,13 @@ public abstract class AbstractByteValFeature extends AbstractFeature {
 
     /**
      * Validates the given value for min/max values and stepsize.
+     * Values between two steps are rounded down to the lower step (see {@link #toValidValue(int, int, int, int)}).
      *
      * @param _value to check
      * @return same as _input or the closest possible value
      */
     private byte validateValue(byte _value) {
-        // range check, only send allowed values
-        if (_value > getMaxValue()) {
-            _value = getMaxValue();
-        } else if (_value < getMinValue()) {
-            _value = getMinValue();
-        }
-
-        if (_value % getStepSize() != 0) { // value is not divisible by stepsize, fix number
-            _value = ((byte) (_value / getStepSize()));
-        }
-        return _value;
+        return (byte) toValidValue(_value, getMinValue(), getMaxValue(), getStepSize());
     }
 
     /**
@@ -74,6 +77,15 @@ public abstract class AbstractByteValFeature extends AbstractFeature {
         }
     }
 
+    /**
+     * Read a byte from the GATT characteristics without blocking the caller.
+     *
+     * @return future completed with the byte or value of ERROR_RETURN if error occours
+     */
+    public CompletableFuture<Byte> readByteAsync() {
+        return submit(this::readByte);
+    }
+
     /**
      * StepSize used for all values.
      *
@@ -1,9 +1,9 @@
 package com.github.hypfvieh.paulmann.features;
 
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +11,10 @@ import org.slf4j.LoggerFactory;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+import com.github.hypfvieh.paulmann.connection.CommandPriority;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.connection.DeviceSession;
+import com.github.hypfvieh.paulmann.connection.DeviceUnavailableException;
 
 /**
  * Base class of all 'features' a Paulmann bluetooth device can have.
@@ -27,10 +31,17 @@ public abstract class AbstractFeature {
     private final BluetoothGattService gattService;
     private BluetoothGattCharacteristic characteristic;
 
-    private Exception lastError;
+    private volatile Exception lastError;
 
-    private List<byte[]> cachedWrites = new CopyOnWriteArrayList<>();
-    private Timer cacheWriteTimer;
+    private volatile WriteMode writeMode = WriteMode.REQUEST;
+
+    private final CachedWriteSlot cachedWrites = new CachedWriteSlot(this);
+    private final FeatureValueCache valueCache = new FeatureValueCache();
+
+    private final List<FeatureValueListener> valueListeners = new CopyOnWriteArrayList<>();
+    private boolean notifying;
+    /** true if the subscription was ended by the device or bluez and has to be renewed */
+    private boolean subscriptionLost;
 
     protected AbstractFeature(BluetoothGattCharacteristic _characteristic) {
         characteristic = _characteristic;
@@ -46,86 +57,151 @@ public abstract class AbstractFeature {
      * Caches write operations and will only send the last received write operation.
      * This can be used to avoid flooding the bluetooth device with commands it could not handle at that speed
      * (which could lead to weird behaviors when using e.g. light dimming features).
+     * <br>
+     * The first cached write starts a send window, every value received within that window replaces the previous one.
+     * When the window ends the latest value is sent. A new window is only started after that write has finished.
+     * The window length adapts to the measured write latency of the device (see {@link #getCachedWriteWindow()}).
      *
      * @param _value value to write
      */
     public void writeCached(byte[] _value) {
         if (_value != null) {
-            cachedWrites.add(_value);
+            cachedWrites.offer(_value);
         }
+    }
 
-        if (cacheWriteTimer != null) { // already having a send timer, cancel it and start new
-            cacheWriteTimer.cancel();
+    /**
+     * Write something to the device characteristics register.
+     *
+     * @param _value value to write
+     * @return true on successful write, false otherwise
+     */
+    public boolean writeValue(byte[] _value) {
+        if (_value == null) {
+            return false;
         }
-        cacheWriteTimer = new Timer();
-        cacheWriteTimer.schedule(createCachedSendTask(), 200L);
+        return getSession().getCommandQueue().execute(() -> writeValueInternal(_value));
     }
 
     /**
-     * Creates a timer taks to send the last entry of the cached command queue.
+     * Write something to the device characteristics register without blocking the caller.
+     * The write is queued behind all other pending commands of the same device.
      *
-     * @return TimerTask
+     * @param _value value to write
+     * @return future completed with true on successful write, false otherwise
      */
-    private TimerTask createCachedSendTask() {
-        return new TimerTask() {
+    public CompletableFuture<Boolean> writeValueAsync(byte[] _value) {
+        if (_value == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(() -> writeValueInternal(_value));
+    }
 
-            @Override
-            public void run() {
-                byte[] bs = cachedWrites.get(cachedWrites.size() - 1);
-                writeValue(bs);
-                cachedWrites.clear(); // remove all cached entries
-                cacheWriteTimer.cancel(); // cancel the timer - this is the last command to execute
-                cacheWriteTimer = null; // reset global timer variable
-            }
-        };
+    /**
+     * Read something from the device characteristics register.
+     * If a value cache TTL is configured, a cached value is returned while it is valid.
+     *
+     * @return byte array with result, or null on error
+     */
+    public byte[] readValue() {
+        byte[] cached = valueCache.get();
+        if (cached != null) {
+            return cached;
+        }
+        return getSession().getCommandQueue().execute(this::readValueInternal);
     }
 
     /**
-     * Write something to the device characteristics register.
+     * Read something from the device characteristics register without blocking the caller.
+     * If a value cache TTL is configured, a cached value is returned while it is valid.
      *
-     * @param _value value to write
+     * @return future completed with the read bytes, or null on error
+     */
+    public CompletableFuture<byte[]> readValueAsync() {
+        byte[] cached = valueCache.get();
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return submit(this::readValueInternal);
+    }
+
+    /**
+     * Queue a command in the command queue of the device.
+     * All read/write calls done inside the command are executed directly.
+     *
+     * @param _command command to execute
+     * @param <T> result type
+     * @return future completed with the result of the command
+     */
+    protected <T> CompletableFuture<T> submit(Supplier<T> _command) {
+        return getSession().getCommandQueue().submit(_command);
+    }
+
+    /**
+     * Write a value which is created right before it is sent, while the device is connected.
+     * Use this for time critical values (e.g. the current time), so the delay of connecting
+     * and of the command queue is not included in the value.
+     * The supplier is called again for every retry.
+     *
+     * @param _value supplier of the value to write, called on the command thread
      * @return true on successful write, false otherwise
      */
-    public boolean writeValue(byte[] _value) {
+    protected boolean writeValue(Supplier<byte[]> _value) {
         if (_value == null) {
             return false;
         }
+        return getSession().getCommandQueue().execute(() -> writeValueInternal(_value));
+    }
+
+    private boolean writeValueInternal(byte[] _value) {
+        return writeValueInternal(() -> _value);
+    }
+
+    private boolean writeValueInternal(Supplier<byte[]> _value) {
         lastError = null;
+        DeviceSession session = getSession();
+        WriteMode mode = writeMode;
         try {
-            if (connectIfNotConnected()) {
-                characteristic.writeValue(_value, null);
-                device.disconnect();
-                return true;
-            } else {
-                logger.debug("Could not connect to device");
-                return false;
-            }
+            byte[] written = session.execute(() -> {
+                byte[] value = _value.get();
+                long start = System.nanoTime();
+                characteristic.writeValue(value, mode.getOptions());
+                if (mode == WriteMode.REQUEST) { // unacknowledged writes do not tell anything about the device speed
+                    session.getWriteLatency().record(System.nanoTime() - start);
+                }
+                return value;
+            });
+            valueCache.update(written);
+            return true;
+        } catch (DeviceUnavailableException _ex) {
+            logger.debug("Could not send message: {}", _ex.getMessage());
+            lastError = _ex;
+            valueCache.invalidate();
+            return false;
         } catch (Exception _ex) {
             logger.warn("Exception while sending message.", _ex);
             lastError = _ex;
+            valueCache.invalidate();
             return false;
         }
     }
 
-    /**
-     * Read something from the device characteristics register
-     *
-     * @return byte array with result, or null on error
-     */
-    public byte[] readValue() {
+    private byte[] readValueInternal() {
         lastError = null;
+        valueCache.recordMiss();
         try {
-            if (connectIfNotConnected()) {
-                byte[] readValue = characteristic.readValue(null);
-                device.disconnect();
-                return readValue;
-            } else {
-                logger.debug("Could not connect to device.");
-                return null;
-            }
+            byte[] value = getSession().execute(() -> characteristic.readValue(null));
+            valueCache.update(value);
+            return value;
+        } catch (DeviceUnavailableException _ex) {
+            logger.debug("Could not read data: {}", _ex.getMessage());
+            lastError = _ex;
+            valueCache.invalidate();
+            return null;
         } catch (Exception _ex) {
             logger.warn("Error while reading data.", _ex);
             lastError = _ex;
+            valueCache.invalidate();
             return null;
         }
     }
@@ -133,24 +209,282 @@ public abstract class AbstractFeature {
     public abstract FeatureIdent<?> getFeatureIdent();
 
     /**
-     * Establish a connection to the device, if not already existing.
-     * This catches all exceptions and so on.
+     * Setup how values are written to the device.
+     * Use {@link WriteMode#COMMAND} for high-rate updates (e.g. animations) where a lost value is acceptable.
+     *
+     * @param _writeMode mode to use, null will use {@link WriteMode#REQUEST}
+     */
+    public void setWriteMode(WriteMode _writeMode) {
+        writeMode = _writeMode == null ? WriteMode.REQUEST : _writeMode;
+    }
+
+    /**
+     * Currently used {@link WriteMode}.
+     *
+     * @return {@link WriteMode}, never null
+     */
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    /**
+     * Setup the time in milliseconds a read or written value is served from cache instead of reading the device.
+     * Use 0 (default) to always read from the device.
+     *
+     * @param _ttlMs time-to-live in milliseconds
+     */
+    public void setCacheTtl(long _ttlMs) {
+        valueCache.setTtl(_ttlMs);
+    }
+
+    /**
+     * Configured value cache time-to-live in milliseconds.
+     *
+     * @return ttl, 0 if cache is disabled
+     */
+    public long getCacheTtl() {
+        return valueCache.getTtl();
+    }
+
+    /**
+     * Drop the cached value, so the next read will query the device.
+     */
+    public void invalidateCache() {
+        valueCache.invalidate();
+    }
+
+    /**
+     * Number of reads answered from the value cache.
+     *
+     * @return long
+     */
+    public long getCacheHits() {
+        return valueCache.getHits();
+    }
+
+    /**
+     * Number of reads which had to query the device.
+     *
+     * @return long
+     */
+    public long getCacheMisses() {
+        return valueCache.getMisses();
+    }
+
+    /**
+     * Subscribe to value notifications of the device.
+     * <br>
+     * While notifications are enabled, the connection to the device is kept open and every value pushed by
+     * the device (e.g. changes done with the physical remote) updates the value cache and is passed to
+     * all registered {@link FeatureValueListener}s. Reads are answered from cache without querying the device.
+     *
+     * @return true if notifications are enabled, false otherwise
+     */
+    public boolean enableNotifications() {
+        return getSession().getCommandQueue().execute(this::enableNotificationsInternal);
+    }
+
+    /**
+     * Stop receiving value notifications and release the connection hold for notifications.
+     */
+    public void disableNotifications() {
+        getSession().getCommandQueue().execute(() -> {
+            disableNotificationsInternal();
+            return null;
+        });
+    }
+
+    /**
+     * Check if value notifications are enabled and the device is currently pushing values.
      *
-     * @return true if connection is established, false otherwise
+     * @return true if enabled and subscribed
      */
-    private boolean connectIfNotConnected() {
+    public synchronized boolean isNotifying() {
+        return notifying && !subscriptionLost;
+    }
+
+    /**
+     * Add a listener which will be called when the device pushes a new value.
+     * Requires notifications to be enabled (see {@link #enableNotifications()}).
+     *
+     * @param _listener listener to add
+     */
+    public void addValueListener(FeatureValueListener _listener) {
+        if (_listener != null) {
+            valueListeners.add(_listener);
+        }
+    }
+
+    /**
+     * Remove a previously added listener.
+     *
+     * @param _listener listener to remove
+     */
+    public void removeValueListener(FeatureValueListener _listener) {
+        valueListeners.remove(_listener);
+    }
+
+    private synchronized boolean enableNotificationsInternal() {
+        if (notifying) {
+            return true;
+        }
+        lastError = null;
+        DeviceSession session = getSession();
+        if (!session.acquire()) { // connection is kept until notifications are disabled
+            logger.debug("Could not connect to device.");
+            return false;
+        }
+        if (!FeatureNotificationDispatcher.getInstance().register(this)) {
+            session.release();
+            return false;
+        }
         try {
-            if (!device.isConnected()) {
-                return device.connect();
-            } else {
-                return device.isConnected();
-            }
+            characteristic.startNotify();
+            notifying = true;
+            valueCache.setPinned(true);
+            return true;
         } catch (Exception _ex) {
-            logger.warn("Could not connect to device.", _ex);
+            logger.warn("Could not enable notifications.", _ex);
+            lastError = _ex;
+            FeatureNotificationDispatcher.getInstance().unregister(this);
+            session.release();
             return false;
         }
     }
 
+    private synchronized void disableNotificationsInternal() {
+        if (!notifying) {
+            return;
+        }
+        notifying = false;
+        subscriptionLost = false;
+        valueCache.setPinned(false);
+        FeatureNotificationDispatcher.getInstance().unregister(this);
+        try {
+            characteristic.stopNotify();
+        } catch (Exception _ex) {
+            logger.debug("Error while disabling notifications.", _ex);
+        } finally {
+            getSession().release();
+        }
+    }
+
+    /**
+     * Called by {@link FeatureNotificationDispatcher} when the subscription was ended by bluez
+     * (device disconnected, adapter reset...).
+     * The cached value is no longer kept up to date, so it is dropped and the subscription is renewed.
+     */
+    void subscriptionEnded() {
+        synchronized (this) {
+            if (!notifying || subscriptionLost) {
+                return;
+            }
+            subscriptionLost = true;
+            valueCache.setPinned(false);
+            valueCache.invalidate();
+        }
+        logger.debug("Notifications of {} ended, re-subscribing", characteristic.getUuid());
+        resubscribe();
+    }
+
+    /**
+     * Called by {@link FeatureNotificationDispatcher} when the device was connected again.
+     * Renews a lost subscription.
+     */
+    void deviceConnected() {
+        synchronized (this) {
+            if (!notifying || !subscriptionLost) {
+                return;
+            }
+        }
+        resubscribe();
+    }
+
+    private void resubscribe() {
+        getSession().getCommandQueue().submit(CommandPriority.AUTOMATION, this::resubscribeInternal);
+    }
+
+    private boolean resubscribeInternal() {
+        Exception error = null;
+        synchronized (this) {
+            if (!notifying || !subscriptionLost) {
+                return true;
+            }
+            DeviceSession session = getSession();
+            // the connection hold of enableNotifications is still counted, acquire only reconnects
+            if (session.acquire()) {
+                try {
+                    characteristic.startNotify();
+                    subscriptionLost = false;
+                    valueCache.setPinned(true);
+                    return true;
+                } catch (Exception _ex) {
+                    error = _ex;
+                } finally {
+                    session.release();
+                }
+            } else {
+                error = new DeviceUnavailableException("Could not reconnect to device");
+            }
+            lastError = error;
+        }
+        // stays lost, retried when the device is connected again
+        logger.debug("Could not renew notifications of {}: {}", characteristic.getUuid(), error.getMessage());
+        for (FeatureValueListener listener : valueListeners) {
+            try {
+                listener.notificationsLost(this, error);
+            } catch (Exception _ex) {
+                logger.warn("Value listener {} failed.", listener, _ex);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called by {@link FeatureNotificationDispatcher} when the device pushed a new value.
+     *
+     * @param _value new value
+     */
+    void notificationReceived(byte[] _value) {
+        valueCache.update(_value);
+        for (FeatureValueListener listener : valueListeners) {
+            try {
+                listener.valueChanged(this, _value.clone());
+            } catch (Exception _ex) {
+                logger.warn("Value listener {} failed.", listener, _ex);
+            }
+        }
+    }
+
+    /**
+     * Current window in milliseconds used to coalesce cached writes.
+     * The window is derived from the measured write latency of the device.
+     *
+     * @return window in milliseconds
+     */
+    public long getCachedWriteWindow() {
+        return getSession().getWriteLatency().getWindow();
+    }
+
+    /**
+     * Average time in milliseconds a write to the device took.
+     * The value is shared by all features of the same device.
+     *
+     * @return latency in milliseconds or -1 if no write was done yet
+     */
+    public long getMeasuredWriteLatency() {
+        return getSession().getWriteLatency().getAverageLatency();
+    }
+
+    /**
+     * Connection session of the device, shared with all other features of the same device.
+     *
+     * @return {@link DeviceSession}
+     */
+    protected DeviceSession getSession() {
+        return ConnectionManager.getInstance().getSession(device);
+    }
+
     /**
      * GATT service UUID.
      *
@@ -196,6 +530,30 @@ public abstract class AbstractFeature {
         return lastError;
     }
 
+    /**
+     * Helper to limit a value to the given range and round it down to the given step size.
+     * This is the validation applied to all values written by byte and int based features.
+     *
+     * @param _value value to check
+     * @param _min minimum allowed value
+     * @param _max maximum allowed value
+     * @param _stepSize step size
+     * @return same as _value or the closest possible value
+     */
+    public static int toValidValue(int _value, int _min, int _max, int _stepSize) {
+        // range check, only send allowed values
+        if (_value > _max) {
+            _value = _max;
+        } else if (_value < _min) {
+            _value = _min;
+        }
+
+        if (_value % _stepSize != 0) { // value is not divisible by stepsize, fix number
+            _value = _value / _stepSize * _stepSize;
+        }
+        return _value;
+    }
+
     /**
      * Helper to convert a byteArray to byte.
      *
@@ -2,8 +2,10 @@ package com.github.hypfvieh.paulmann.features;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
@@ -49,6 +51,15 @@ public abstract class AbstractPredefinedIntValFeature extends AbstractFeature {
         return predefinedValues.size();
     }
 
+    /**
+     * All values supported by this feature.
+     *
+     * @return unmodifiable list
+     */
+    public List<PredefinedValue> getPredefinedValues() {
+        return Collections.unmodifiableList(predefinedValues);
+    }
+
     /**
      * Write a value from the predefined value list to the device by giving the position index of the value.
      *
@@ -87,6 +98,26 @@ public abstract class AbstractPredefinedIntValFeature extends AbstractFeature {
         return writeValue(BigInteger.valueOf(_value).toByteArray());
     }
 
+    /**
+     * Write a value from the predefined value list by its position index without blocking the caller.
+     *
+     * @param _index to write
+     * @return future completed with true on success, false otherwise
+     */
+    public CompletableFuture<Boolean> writePredefinedValueByIndexAsync(int _index) {
+        return submit(() -> writePredefinedValueByIndex(_index));
+    }
+
+    /**
+     * Write the given predefined value without blocking the caller.
+     *
+     * @param _value to write
+     * @return future completed with true on success, false otherwise
+     */
+    public CompletableFuture<Boolean> writePredefinedValueAsync(int _value) {
+        return submit(() -> writePredefinedValue(_value));
+    }
+
     /**
      * Add a new value to the predefined value list.
      * This method will prevent duplicates in the value list.
@@ -1,6 +1,7 @@
 package com.github.hypfvieh.paulmann.features;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
@@ -35,6 +36,15 @@ public abstract class AbstractStringValFeature extends AbstractFeature {
         return writeValue(_value.getBytes(StandardCharsets.US_ASCII));
     }
 
+    /**
+     * Write a String without blocking the caller.
+     * @param _value to write
+     * @return future completed with true on successful write, false otherwise
+     */
+    public CompletableFuture<Boolean> writeStringAsync(String _value) {
+        return submit(() -> writeString(_value));
+    }
+
     /**
      * Use cached write to send the value.
      * @see AbstractFeature#writeCached(byte[])
@@ -54,6 +64,14 @@ public abstract class AbstractStringValFeature extends AbstractFeature {
         return new String(readValue(), StandardCharsets.US_ASCII);
     }
 
+    /**
+     * Read a string without blocking the caller.
+     * @return future completed with the read string
+     */
+    public CompletableFuture<String> readStringAsync() {
+        return submit(this::readString);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + " [defaultValue=" + getDefaultValue() + "]";
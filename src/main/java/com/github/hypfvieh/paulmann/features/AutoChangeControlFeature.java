@@ -2,6 +2,7 @@ package com.github.hypfvieh.paulmann.features;
 
 import java.util.AbstractMap;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
@@ -89,6 +90,17 @@ public class AutoChangeControlFeature extends AbstractFeature {
         return null;
     }
 
+    public CompletableFuture<Void> setEffectAsync(Effect _effect, byte _value) {
+        return submit(() -> {
+            setEffect(_effect, _value);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Entry<Effect, Byte>> getEffectAsync() {
+        return submit(this::getEffect);
+    }
+
     static class AutoChangeEffects {
         private final byte minValue;
         private final byte maxValue;
@@ -3,6 +3,9 @@ package com.github.hypfvieh.paulmann.features;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 public class BrightnessFeature extends AbstractByteValFeature {
+    public static final byte MIN_VALUE = 0;
+    public static final byte MAX_VALUE = 100;
+    public static final byte STEP_SIZE = 5;
 
     public BrightnessFeature(BluetoothGattCharacteristic _char) {
         super(_char);
@@ -13,7 +16,7 @@ public class BrightnessFeature extends AbstractByteValFeature {
      */
     @Override
     public byte getStepSize() {
-        return 5;
+        return STEP_SIZE;
     }
 
     /**
@@ -29,7 +32,7 @@ public class BrightnessFeature extends AbstractByteValFeature {
      */
     @Override
     public byte getMinValue() {
-        return 0;
+        return MIN_VALUE;
     }
 
     /**
@@ -37,7 +40,7 @@ public class BrightnessFeature extends AbstractByteValFeature {
      */
     @Override
     public byte getMaxValue() {
-        return 100;
+        return MAX_VALUE;
     }
 
     /**
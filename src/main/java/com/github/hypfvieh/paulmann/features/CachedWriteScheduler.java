@@ -0,0 +1,34 @@
+package com.github.hypfvieh.paulmann.features;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process wide scheduler used by all features to send cached writes.
+ * <br>
+ * Uses one small thread pool for all devices instead of a timer thread per write.
+ *
+ * @author David M.
+ */
+final class CachedWriteScheduler {
+    private static final CachedWriteScheduler INSTANCE = new CachedWriteScheduler();
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private CachedWriteScheduler() {
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "paulmann-cached-write");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    static CachedWriteScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    void schedule(Runnable _task, long _delayMs) {
+        executor.schedule(_task, _delayMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.hypfvieh.paulmann.features;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the latest pending cached write of a single feature.
+ * <br>
+ * Each new value replaces the previous pending value (latest value wins).
+ * At most one write per slot is scheduled or in flight at any time, so memory usage per feature
+ * stays constant regardless of the number of cached writes.
+ *
+ * @author David M.
+ */
+final class CachedWriteSlot {
+
+    private final AbstractFeature feature;
+
+    private final AtomicReference<byte[]> pending = new AtomicReference<>();
+    /** true while a flush is scheduled or the flushed value is still being written */
+    private final AtomicBoolean armed = new AtomicBoolean();
+
+    CachedWriteSlot(AbstractFeature _feature) {
+        feature = _feature;
+    }
+
+    /**
+     * Store the value as pending write and schedule a flush if none is scheduled yet.
+     *
+     * @param _value value to write
+     */
+    void offer(byte[] _value) {
+        pending.set(_value);
+        scheduleIfRequired();
+    }
+
+    private void scheduleIfRequired() {
+        if (pending.get() != null && armed.compareAndSet(false, true)) {
+            CachedWriteScheduler.getInstance().schedule(this::flush, feature.getCachedWriteWindow());
+        }
+    }
+
+    private void flush() {
+        byte[] value = pending.getAndSet(null);
+        if (value == null) {
+            armed.set(false);
+            scheduleIfRequired();
+            return;
+        }
+        feature.writeValueAsync(value).whenComplete((r, ex) -> {
+            armed.set(false);
+            scheduleIfRequired(); // values received while writing are sent in the next window
+        });
+    }
+}
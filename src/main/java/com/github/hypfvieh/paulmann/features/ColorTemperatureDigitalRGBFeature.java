@@ -1,8 +1,16 @@
 package com.github.hypfvieh.paulmann.features;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 public class ColorTemperatureDigitalRGBFeature extends AbstractPredefinedIntValFeature {
+    /** Color temperatures supported by the lamp. */
+    public static final List<PredefinedValue> PREDEFINED_VALUES = Collections.unmodifiableList(Arrays.asList(
+            new PredefinedValue("Color Temp 2700K", 2700),
+            new PredefinedValue("Color Temp 4000K", 4000)));
 
     protected ColorTemperatureDigitalRGBFeature(BluetoothGattCharacteristic _characteristic) {
         super(_characteristic);
@@ -13,8 +21,9 @@ public class ColorTemperatureDigitalRGBFeature extends AbstractPredefinedIntValF
      */
     @Override
     protected void populatePredefinedList() {
-        addPredefinedValue(new PredefinedValue("Color Temp 2700K", 2700));
-        addPredefinedValue(new PredefinedValue("Color Temp 4000K", 4000));
+        for (PredefinedValue value : PREDEFINED_VALUES) {
+            addPredefinedValue(value);
+        }
     }
 
     /**
@@ -30,7 +39,7 @@ public class ColorTemperatureDigitalRGBFeature extends AbstractPredefinedIntValF
      */
     @Override
     public FeatureIdent<?> getFeatureIdent() {
-        return FeatureIdent.PAULMANN_COLORTEMP_RGBW_FEATURE;
+        return FeatureIdent.PAULMANN_COLORTEMP_DIGITALRGB_FEATURE;
     }
 
 }
@@ -1,8 +1,19 @@
 package com.github.hypfvieh.paulmann.features;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 public class ColorTemperatureRGBWFeature extends AbstractPredefinedIntValFeature {
+    /** Color temperatures supported by the lamp. */
+    public static final List<PredefinedValue> PREDEFINED_VALUES = Collections.unmodifiableList(Arrays.asList(
+            new PredefinedValue("Color Temp 2400K", 2400),
+            new PredefinedValue("Color Temp 2700K", 2700),
+            new PredefinedValue("Color Temp 3000K", 3000),
+            new PredefinedValue("Color Temp 4000K", 4000),
+            new PredefinedValue("Color Temp 5000K", 5000)));
 
     protected ColorTemperatureRGBWFeature(BluetoothGattCharacteristic _characteristic) {
         super(_characteristic);
@@ -13,11 +24,9 @@ public class ColorTemperatureRGBWFeature extends AbstractPredefinedIntValFeature
      */
     @Override
     protected void populatePredefinedList() {
-        addPredefinedValue(new PredefinedValue("Color Temp 2400K", 2400));
-        addPredefinedValue(new PredefinedValue("Color Temp 2700K", 2700));
-        addPredefinedValue(new PredefinedValue("Color Temp 3000K", 3000));
-        addPredefinedValue(new PredefinedValue("Color Temp 4000K", 4000));
-        addPredefinedValue(new PredefinedValue("Color Temp 5000K", 5000));
+        for (PredefinedValue value : PREDEFINED_VALUES) {
+            addPredefinedValue(value);
+        }
     }
 
     /**
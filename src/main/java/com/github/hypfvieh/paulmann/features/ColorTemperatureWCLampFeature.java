@@ -3,6 +3,9 @@ package com.github.hypfvieh.paulmann.features;
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 public class ColorTemperatureWCLampFeature extends AbstractIntValFeature {
+    public static final int MIN_VALUE = 2700;
+    public static final int MAX_VALUE = 6500;
+    public static final int STEP_SIZE = 50;
 
     protected ColorTemperatureWCLampFeature(BluetoothGattCharacteristic _characteristic) {
         super(_characteristic);
@@ -10,7 +13,7 @@ public class ColorTemperatureWCLampFeature extends AbstractIntValFeature {
 
     @Override
     public int getStepSize() {
-        return 50;
+        return STEP_SIZE;
     }
 
     @Override
@@ -20,12 +23,12 @@ public class ColorTemperatureWCLampFeature extends AbstractIntValFeature {
 
     @Override
     public int getMinValue() {
-        return 2700;
+        return MIN_VALUE;
     }
 
     @Override
     public int getMaxValue() {
-        return 6500;
+        return MAX_VALUE;
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.github.hypfvieh.paulmann.features;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 public class DevicePasswordFeature extends AbstractStringValFeature {
@@ -48,6 +50,16 @@ public class DevicePasswordFeature extends AbstractStringValFeature {
         return authenticated;
     }
 
+    /**
+     * Authenticate at the device without blocking the caller.
+     *
+     * @param _password password to use
+     * @return future completed with true if authentication was successful
+     */
+    public CompletableFuture<Boolean> authenticateAsync(String _password) {
+        return submit(() -> authenticate(_password));
+    }
+
     public boolean isAuthenticated() {
         return authenticated;
     }
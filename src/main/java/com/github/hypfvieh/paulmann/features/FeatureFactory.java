@@ -29,6 +29,9 @@ public class FeatureFactory {
 
     /**
      * Creates a feature class instance for the given service/characteristics.
+     * <br>
+     * Enumerates the characteristics of the service, use {@link #createFeature(FeatureIdent, GattCharacteristicIndex)}
+     * when creating more than one feature of the same service.
      *
      * @param _feature feature to create
      * @param _service service instance
@@ -38,13 +41,28 @@ public class FeatureFactory {
         if (_feature == null || _service == null) {
             logger.debug("Either feature ({}) or service ({}) is null", _feature, _service);
             return null;
-        } else if (_service.getDevice() == null) {
+        }
+        return createFeature(_feature, GattCharacteristicIndex.of(_service));
+    }
+
+    /**
+     * Creates a feature class instance using an already indexed service.
+     *
+     * @param _feature feature to create
+     * @param _index characteristics of the service
+     * @return concrete class of {@link AbstractFeature} or null on error
+     */
+    public AbstractFeature createFeature(FeatureIdent<?> _feature, GattCharacteristicIndex _index) {
+        if (_feature == null || _index == null) {
+            logger.debug("Either feature ({}) or service index ({}) is null", _feature, _index);
+            return null;
+        } else if (_index.getService().getDevice() == null) {
             logger.debug("Device is null");
             return null;
         }
 
-        String serviceUuid = _service.getUuid();
-        if (!serviceUuid.toUpperCase().startsWith(PAULMANN_SERVICE_UUID)) {
+        String serviceUuid = _index.getServiceUuid();
+        if (serviceUuid == null || !serviceUuid.toUpperCase().startsWith(PAULMANN_SERVICE_UUID)) {
             logger.debug("Ignoring non-Paulmann services ({})", serviceUuid);
             return null;
         }
@@ -56,15 +74,13 @@ public class FeatureFactory {
             return null;
         }
 
-        for (BluetoothGattCharacteristic bgc : _service.getGattCharacteristics()) {
-            String charUuid = bgc.getUuid();
-            if (charUuid.equalsIgnoreCase(_feature.getCharId())) {
-                AbstractFeature newInstance = newInstance(_feature, bgc);
-                if (newInstance == null) {
-                    logger.info("Could not create feature {}", _feature.getName());
-                }
-                return newInstance;
+        BluetoothGattCharacteristic bgc = _index.get(_feature.getCharId());
+        if (bgc != null) {
+            AbstractFeature newInstance = newInstance(_feature, bgc);
+            if (newInstance == null) {
+                logger.info("Could not create feature {}", _feature.getName());
             }
+            return newInstance;
         }
         logger.debug("No suitable GATT characteristics found for {}",
                 _feature.getName() + "(CharId: " + _feature.getCharId() + ")");
@@ -72,7 +88,7 @@ public class FeatureFactory {
     }
 
     /**
-     * Create a new instance by reflection.
+     * Create a new instance using the constructor provided by the {@link FeatureIdent}.
      *
      * @param _feature feature to create instance for
      * @param _char GATT characteristics for this feature
@@ -81,11 +97,7 @@ public class FeatureFactory {
     private AbstractFeature newInstance(FeatureIdent<?> _feature, BluetoothGattCharacteristic _char) {
 
         try {
-            Class<? extends AbstractFeature> deviceClass = _feature.getDeviceClass();
-            if (deviceClass != null) {
-                return deviceClass.getConstructor(BluetoothGattCharacteristic.class).newInstance(_char);
-            }
-            return null;
+            return _feature.createInstance(_char);
         } catch (Exception _ex) {
             logger.info("Could not create BluetoothFeature-Instance.", _ex);
             return null;
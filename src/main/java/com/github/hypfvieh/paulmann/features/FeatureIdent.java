@@ -6,13 +6,16 @@ import static com.github.hypfvieh.paulmann.features.FeatureMode.WRITE;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 import com.github.hypfvieh.paulmann.devices.AbstractPaulmannDevice;
 
 /**
  * Allow known features of Paulmann devices.
  * This includes the UUID of the GATT service and characteristics.
- * All enum values also provide the class which implements the feature behind the enum value.
+ * All enum values also provide the class which implements the feature behind the enum value
+ * and the constructor used to create it.
  *
  * Sadly using enum would prevent deny the proper usage of generics in {@link AbstractPaulmannDevice},
  * so the 'poor-mans' enum is used.
@@ -28,51 +31,63 @@ public final class FeatureIdent<T extends AbstractFeature> {
 
     // only for RGB/RGBW and DigitalRGB
     public static final FeatureIdent<AutoChangeControlFeature> PAULMANN_AUTOCHANGE_CONTROL_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB1", AutoChangeControlFeature.class, "PAULMANN_AUTOCHANGE_CONTROL_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFB1", AutoChangeControlFeature.class, AutoChangeControlFeature::new,
+            "PAULMANN_AUTOCHANGE_CONTROL_FEATURE", READWRITE);
     public static final FeatureIdent<RgbFeature> PAULMANN_RGB_FEATURE = new FeatureIdent<>(PAULMANN_SERVICE_ID, "FFB2",
-            RgbFeature.class, "PAULMANN_RGB_FEATURE", READWRITE);
+            RgbFeature.class, RgbFeature::new, "PAULMANN_RGB_FEATURE", READWRITE);
 
     // all devices
     public static final FeatureIdent<SystemTimeFeature> PAULMANN_SYSTEMTIME_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB3", SystemTimeFeature.class, "PAULMANN_SYSTEMTIME_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFB3", SystemTimeFeature.class, SystemTimeFeature::new,
+            "PAULMANN_SYSTEMTIME_FEATURE", READWRITE);
     public static final FeatureIdent<TimerFeature> PAULMANN_TIMER_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB4", TimerFeature.class, "PAULMANN_TIMER_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFB4", TimerFeature.class, TimerFeature::new, "PAULMANN_TIMER_FEATURE", READWRITE);
 
     public static final FeatureIdent<DeviceNameFeature> PAULMANN_DEVICENAME_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB5", DeviceNameFeature.class, "PAULMANN_DEVICENAME_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFB5", DeviceNameFeature.class, DeviceNameFeature::new,
+            "PAULMANN_DEVICENAME_FEATURE", READWRITE);
 
     // Color temp feature for RGBW Lamps
     public static final FeatureIdent<ColorTemperatureRGBWFeature> PAULMANN_COLORTEMP_RGBW_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB6", ColorTemperatureRGBWFeature.class, "PAULMANN_COLORTEMP_RGBW_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFB6", ColorTemperatureRGBWFeature.class, ColorTemperatureRGBWFeature::new,
+            "PAULMANN_COLORTEMP_RGBW_FEATURE", READWRITE);
     // Color temp feature for WC-Lamps
-    public static final FeatureIdent<ColorTemperatureRGBWFeature> PAULMANN_COLORTEMP_WCLAMP_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB6", ColorTemperatureRGBWFeature.class, "PAULMANN_COLORTEMP_WCLAMP_FEATURE", READWRITE);
+    public static final FeatureIdent<ColorTemperatureWCLampFeature> PAULMANN_COLORTEMP_WCLAMP_FEATURE = new FeatureIdent<>(
+            PAULMANN_SERVICE_ID, "FFB6", ColorTemperatureWCLampFeature.class, ColorTemperatureWCLampFeature::new,
+            "PAULMANN_COLORTEMP_WCLAMP_FEATURE", READWRITE);
     // Color temp feature for DigitalRGB Lamps
-    public static final FeatureIdent<ColorTemperatureRGBWFeature> PAULMANN_COLORTEMP_DIGITALRGB_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB6", ColorTemperatureRGBWFeature.class, "PAULMANN_COLORTEMP_DIGITALRGB_FEATURE", READWRITE);
+    public static final FeatureIdent<ColorTemperatureDigitalRGBFeature> PAULMANN_COLORTEMP_DIGITALRGB_FEATURE = new FeatureIdent<>(
+            PAULMANN_SERVICE_ID, "FFB6", ColorTemperatureDigitalRGBFeature.class, ColorTemperatureDigitalRGBFeature::new,
+            "PAULMANN_COLORTEMP_DIGITALRGB_FEATURE", READWRITE);
 
     public static final FeatureIdent<OnOffFeature> PAULMANN_ON_OFF_FEATURE = new FeatureIdent<>(PAULMANN_SERVICE_ID, "FFB7",
-            OnOffFeature.class, "PAULMANN_ON_OFF_FEATURE", READWRITE);
+            OnOffFeature.class, OnOffFeature::new, "PAULMANN_ON_OFF_FEATURE", READWRITE);
 
     public static final FeatureIdent<BrightnessFeature> PAULMANN_BRIGHTNESS_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFB8", BrightnessFeature.class, "PAULMANN_BRIGHTNESS_FEATURE", READWRITE);
-    public static final FeatureIdent<?> PAULMANN_WORKINGMODE_FEATURE = new FeatureIdent<>(PAULMANN_SERVICE_ID, "FFB9", null,
+            PAULMANN_SERVICE_ID, "FFB8", BrightnessFeature.class, BrightnessFeature::new,
+            "PAULMANN_BRIGHTNESS_FEATURE", READWRITE);
+    public static final FeatureIdent<?> PAULMANN_WORKINGMODE_FEATURE = new FeatureIdent<>(PAULMANN_SERVICE_ID, "FFB9", null, null,
             "PAULMANN_WORKINGMODE_FEATURE", READ);
 
     public static final FeatureIdent<DevicePasswordFeature> PAULMANN_DEVICE_PASSWORD_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFBA", DevicePasswordFeature.class, "PAULMANN_DEVICE_PASSWORD_FEATURE", WRITE);
+            PAULMANN_SERVICE_ID, "FFBA", DevicePasswordFeature.class, DevicePasswordFeature::new,
+            "PAULMANN_DEVICE_PASSWORD_FEATURE", WRITE);
     public static final FeatureIdent<RemoteControlModeFeature> PAULMANN_REMOTECONTROLMODE_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFBB", RemoteControlModeFeature.class, "PAULMANN_REMOTECONTROLMODE_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFBB", RemoteControlModeFeature.class, RemoteControlModeFeature::new,
+            "PAULMANN_REMOTECONTROLMODE_FEATURE", READWRITE);
 
     // DigitalRGB only
     public static final FeatureIdent<IcCountFeature> PAULMANN_IC_COUNT_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFBC", IcCountFeature.class, "PAULMANN_IC_COUNT_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFBC", IcCountFeature.class, IcCountFeature::new, "PAULMANN_IC_COUNT_FEATURE", READWRITE);
     public static final FeatureIdent<ColorTableFeature> PAULMANN_COLOR_TABLE_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFBC", ColorTableFeature.class, "PAULMANN_COLOR_TABLE_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFBC", ColorTableFeature.class, ColorTableFeature::new,
+            "PAULMANN_COLOR_TABLE_FEATURE", READWRITE);
     public static final FeatureIdent<ColorTableIdxFeature> PAULMANN_COLOR_TABLE_IDX_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFBC", ColorTableIdxFeature.class, "PAULMANN_COLOR_TABLE_IDX_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFBC", ColorTableIdxFeature.class, ColorTableIdxFeature::new,
+            "PAULMANN_COLOR_TABLE_IDX_FEATURE", READWRITE);
     public static final FeatureIdent<ColorTableCntFeature> PAULMANN_COLOR_TABLE_CNT_FEATURE = new FeatureIdent<>(
-            PAULMANN_SERVICE_ID, "FFBC", ColorTableCntFeature.class, "PAULMANN_COLOR_TABLE_CNT_FEATURE", READWRITE);
+            PAULMANN_SERVICE_ID, "FFBC", ColorTableCntFeature.class, ColorTableCntFeature::new,
+            "PAULMANN_COLOR_TABLE_CNT_FEATURE", READWRITE);
 
 
     public static final String UUID_BASE = "0000XXXX-0000-1000-8000-00805f9b34fb";
@@ -80,13 +95,16 @@ public final class FeatureIdent<T extends AbstractFeature> {
     private final String serviceId;
     private final String charId;
     private final Class<T> deviceClass;
+    private final Function<BluetoothGattCharacteristic, T> constructor;
     private final String name;
     private final FeatureMode mode;
 
-    private FeatureIdent(String _serviceId, String _charId, Class<T> _deviceClass, String _name, FeatureMode _mode) {
+    private FeatureIdent(String _serviceId, String _charId, Class<T> _deviceClass,
+            Function<BluetoothGattCharacteristic, T> _constructor, String _name, FeatureMode _mode) {
         serviceId = createUUID(_serviceId);
         charId = createUUID(_charId);
         deviceClass = _deviceClass;
+        constructor = _constructor;
         name = _name;
         mode = _mode;
         ALL_FEATURES.add(this);
@@ -116,6 +134,16 @@ public final class FeatureIdent<T extends AbstractFeature> {
         return deviceClass;
     }
 
+    /**
+     * Creates a new instance of the feature class.
+     *
+     * @param _char GATT characteristics of the feature
+     * @return new feature instance or null if no implementation exists for this feature
+     */
+    public T createInstance(BluetoothGattCharacteristic _char) {
+        return constructor == null ? null : constructor.apply(_char);
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
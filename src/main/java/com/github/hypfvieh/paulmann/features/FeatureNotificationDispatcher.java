@@ -0,0 +1,149 @@
+package com.github.hypfvieh.paulmann.features;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.handlers.AbstractPropertiesChangedHandler;
+import org.freedesktop.dbus.interfaces.Properties.PropertiesChanged;
+import org.freedesktop.dbus.types.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.bluetooth.DeviceManager;
+
+/**
+ * Receives the PropertiesChanged signals of GATT characteristics and forwards new values to the
+ * feature using that characteristic.
+ * <br>
+ * Lost subscriptions (characteristic stopped notifying, device disconnected) and reconnects of the
+ * device are forwarded as well, so the feature can drop its pinned value and subscribe again.
+ * <br>
+ * A single instance is registered at the {@link DeviceManager} when the first feature enables notifications.
+ *
+ * @author David M.
+ */
+final class FeatureNotificationDispatcher extends AbstractPropertiesChangedHandler {
+    private static final String GATT_CHARACTERISTIC_INTERFACE = "org.bluez.GattCharacteristic1";
+    private static final String DEVICE_INTERFACE = "org.bluez.Device1";
+
+    private static final FeatureNotificationDispatcher INSTANCE = new FeatureNotificationDispatcher();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /** Map of characteristic DBus path -> feature */
+    private final Map<String, AbstractFeature> features = new ConcurrentHashMap<>();
+
+    private volatile boolean registered;
+
+    private FeatureNotificationDispatcher() {
+    }
+
+    static FeatureNotificationDispatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Forward all value changes of the features characteristic to the feature.
+     *
+     * @param _feature feature to register
+     * @return true if signal handler is registered, false otherwise
+     */
+    boolean register(AbstractFeature _feature) {
+        if (!registerHandler()) {
+            return false;
+        }
+        features.put(_feature.getCharacteristic().getDbusPath(), _feature);
+        return true;
+    }
+
+    void unregister(AbstractFeature _feature) {
+        features.remove(_feature.getCharacteristic().getDbusPath(), _feature);
+    }
+
+    private synchronized boolean registerHandler() {
+        if (!registered) {
+            try {
+                DeviceManager.getInstance().registerSignalHandler(this);
+                registered = true;
+            } catch (DBusException _ex) {
+                logger.info("Could not register PropertiesChanged callback", _ex);
+            }
+        }
+        return registered;
+    }
+
+    @Override
+    public void handle(PropertiesChanged _signal) {
+        if (DEVICE_INTERFACE.equals(_signal.getInterfaceName())) {
+            handleDeviceChange(_signal);
+            return;
+        }
+        if (!GATT_CHARACTERISTIC_INTERFACE.equals(_signal.getInterfaceName())) {
+            return;
+        }
+        AbstractFeature feature = features.get(_signal.getPath());
+        if (feature == null) {
+            return;
+        }
+        Variant<?> notifying = _signal.getPropertiesChanged().get("Notifying");
+        if (notifying != null && Boolean.FALSE.equals(notifying.getValue())) {
+            feature.subscriptionEnded();
+            return;
+        }
+        Variant<?> value = _signal.getPropertiesChanged().get("Value");
+        byte[] bytes = value == null ? null : toByteArray(value.getValue());
+        if (bytes != null) {
+            feature.notificationReceived(bytes);
+        }
+    }
+
+    /**
+     * Forwards connection changes of a device to all registered features of this device.
+     *
+     * @param _signal Device1 property change
+     */
+    private void handleDeviceChange(PropertiesChanged _signal) {
+        Variant<?> connected = _signal.getPropertiesChanged().get("Connected");
+        if (connected == null || features.isEmpty()) {
+            return;
+        }
+        String prefix = _signal.getPath() + "/";
+        for (Entry<String, AbstractFeature> entry : features.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                continue;
+            }
+            if (Boolean.TRUE.equals(connected.getValue())) {
+                entry.getValue().deviceConnected();
+            } else {
+                entry.getValue().subscriptionEnded();
+            }
+        }
+    }
+
+    /**
+     * Convert the DBus representation of a byte array to byte[].
+     *
+     * @param _value value of the variant
+     * @return byte array or null if value is not a byte array
+     */
+    private static byte[] toByteArray(Object _value) {
+        if (_value instanceof byte[]) {
+            return (byte[]) _value;
+        } else if (_value instanceof List) {
+            List<?> list = (List<?>) _value;
+            byte[] result = new byte[list.size()];
+            for (int i = 0; i < result.length; i++) {
+                Object o = list.get(i);
+                if (!(o instanceof Number)) {
+                    return null;
+                }
+                result[i] = ((Number) o).byteValue();
+            }
+            return result;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.hypfvieh.paulmann.features;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last known value of a feature characteristic.
+ * <br>
+ * The value is updated by every successful read/write and dropped on errors.
+ * Cached values are only used until the configured time-to-live expired.
+ *
+ * @author David M.
+ */
+final class FeatureValueCache {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private volatile long ttl;
+    private volatile CachedValue current;
+    /**
+     * true if the device pushes all changes, so the cached value never expires.
+     * Reset by the feature as soon as the subscription ends (e.g. on disconnect).
+     */
+    private volatile boolean pinned;
+
+    /**
+     * Returns a copy of the cached value if it is still valid.
+     * A pinned value is valid until it is invalidated, regardless of the TTL.
+     *
+     * @return byte array or null if no valid value is cached
+     */
+    byte[] get() {
+        CachedValue cached = current;
+        if (cached == null) {
+            return null;
+        }
+        if (!pinned && (ttl <= 0 || System.currentTimeMillis() - cached.timestamp > ttl)) {
+            return null;
+        }
+        hits.incrementAndGet();
+        return cached.value.clone();
+    }
+
+    void update(byte[] _value) {
+        current = _value == null ? null : new CachedValue(_value.clone(), System.currentTimeMillis());
+    }
+
+    void invalidate() {
+        current = null;
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getTtl() {
+        return ttl;
+    }
+
+    void setTtl(long _ttl) {
+        ttl = _ttl;
+    }
+
+    void setPinned(boolean _pinned) {
+        pinned = _pinned;
+    }
+
+    private static final class CachedValue {
+        private final byte[] value;
+        private final long timestamp;
+
+        CachedValue(byte[] _value, long _timestamp) {
+            value = _value;
+            timestamp = _timestamp;
+        }
+    }
+}
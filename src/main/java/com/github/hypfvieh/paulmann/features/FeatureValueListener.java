@@ -0,0 +1,30 @@
+package com.github.hypfvieh.paulmann.features;
+
+/**
+ * Listener which is called when a device pushes a new value for a feature
+ * (e.g. when the lamp was switched using the physical remote control).
+ *
+ * @author David M.
+ */
+@FunctionalInterface
+public interface FeatureValueListener {
+
+    /**
+     * Called when the device reported a new value.
+     * This is called from the D-Bus signal thread, so implementations should return quickly.
+     *
+     * @param _feature feature which changed
+     * @param _value new value
+     */
+    void valueChanged(AbstractFeature _feature, byte[] _value);
+
+    /**
+     * Called when the device stopped pushing values (e.g. it was disconnected) and the subscription
+     * could not be renewed. The subscription is renewed as soon as the device is connected again.
+     *
+     * @param _feature feature which no longer receives notifications
+     * @param _error reason
+     */
+    default void notificationsLost(AbstractFeature _feature, Exception _error) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.hypfvieh.paulmann.features;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+
+/**
+ * Characteristics of a GATT service indexed by UUID.
+ * <br>
+ * The service is enumerated once when the index is created, so all features of a device
+ * can be looked up without querying the service again.
+ *
+ * @author David M.
+ */
+public final class GattCharacteristicIndex {
+
+    private final BluetoothGattService service;
+    private final String serviceUuid;
+    private final Map<String, BluetoothGattCharacteristic> characteristics;
+
+    private GattCharacteristicIndex(BluetoothGattService _service) {
+        service = _service;
+        serviceUuid = _service.getUuid();
+        Map<String, BluetoothGattCharacteristic> index = new LinkedHashMap<>();
+        List<BluetoothGattCharacteristic> chars = _service.getGattCharacteristics();
+        if (chars != null) {
+            for (BluetoothGattCharacteristic bgc : chars) {
+                index.putIfAbsent(normalize(bgc.getUuid()), bgc);
+            }
+        }
+        characteristics = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Creates the index of the given service.
+     *
+     * @param _service service to index
+     * @return new index
+     */
+    public static GattCharacteristicIndex of(BluetoothGattService _service) {
+        return new GattCharacteristicIndex(_service);
+    }
+
+    /**
+     * Returns the characteristic with the given UUID (case is ignored).
+     *
+     * @param _uuid characteristic UUID
+     * @return characteristic or null if service has no such characteristic
+     */
+    public BluetoothGattCharacteristic get(String _uuid) {
+        return characteristics.get(normalize(_uuid));
+    }
+
+    /**
+     * Indexed service.
+     *
+     * @return {@link BluetoothGattService}
+     */
+    public BluetoothGattService getService() {
+        return service;
+    }
+
+    /**
+     * UUID of the indexed service, read once when the index was created.
+     *
+     * @return UUID, maybe null
+     */
+    public String getServiceUuid() {
+        return serviceUuid;
+    }
+
+    /**
+     * Number of indexed characteristics.
+     *
+     * @return int
+     */
+    public int size() {
+        return characteristics.size();
+    }
+
+    private static String normalize(String _uuid) {
+        return _uuid == null ? "" : _uuid.toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [serviceUuid=" + serviceUuid + ", characteristics=" + characteristics.keySet() + "]";
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.hypfvieh.paulmann.features;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 /**
@@ -8,6 +10,10 @@ import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
  * This channel is available for all type of the lamps.
  */
 public class OnOffFeature extends AbstractByteValFeature {
+    /** Value of a turned off lamp. */
+    public static final byte MIN_VALUE = 0;
+    /** Value of a turned on lamp. */
+    public static final byte MAX_VALUE = 1;
 
     public OnOffFeature(BluetoothGattCharacteristic _char) {
         super(_char);
@@ -21,6 +27,14 @@ public class OnOffFeature extends AbstractByteValFeature {
         return readByte() == getMaxValue() ? true : false;
     }
 
+    public CompletableFuture<Boolean> toggleAsync(boolean _turnOn) {
+        return submit(() -> toggle(_turnOn));
+    }
+
+    public CompletableFuture<Boolean> isTurnedOnAsync() {
+        return submit(this::isTurnedOn);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -42,7 +56,7 @@ public class OnOffFeature extends AbstractByteValFeature {
      */
     @Override
     public byte getMinValue() {
-        return 0;
+        return MIN_VALUE;
     }
 
     /**
@@ -50,7 +64,7 @@ public class OnOffFeature extends AbstractByteValFeature {
      */
     @Override
     public byte getMaxValue() {
-        return 1;
+        return MAX_VALUE;
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.github.hypfvieh.paulmann.features;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 public class RgbFeature extends AbstractFeature {
@@ -77,9 +79,7 @@ public class RgbFeature extends AbstractFeature {
         if (_chan == null) {
             return false;
         }
-        if (_val < getMinValue(_chan) || _val > getMaxValue(_chan)) {
-            logger.debug("Could not set new {} channel value {} - value out of range ({}/{})", _chan, _val,
-                    getMinValue(_chan), getMaxValue(_chan));
+        if (!isInRange(_chan, _val)) {
             return false;
         }
 
@@ -99,6 +99,17 @@ public class RgbFeature extends AbstractFeature {
         return writeValue(values);
     }
 
+    /**
+     * Set the color of the given color channel without blocking the caller.
+     *
+     * @param _chan color channel
+     * @param _val to set
+     * @return future completed with true on success, false otherwise
+     */
+    public CompletableFuture<Boolean> setValueAsync(ColorChannel _chan, byte _val) {
+        return submit(() -> setValue(_chan, _val));
+    }
+
     /**
      * Set all channels at once.
      *
@@ -110,28 +121,54 @@ public class RgbFeature extends AbstractFeature {
      */
     public boolean setAllColors(byte _red, byte _green, byte _blue) {
 
-        if (_red < getMinValue(ColorChannel.RED) || _red > getMaxValue(ColorChannel.RED)) {
-            logger.debug("Could not set new red channel value {} - value out of range ({}/{})", _red,
-                    getMinValue(ColorChannel.RED), getMaxValue(ColorChannel.RED));
-            return false;
-        }
-        if (_green < getMinValue(ColorChannel.GREEN) || _green > getMaxValue(ColorChannel.GREEN)) {
-            logger.debug("Could not set new green channel value {} - value out of range ({}/{})", _green,
-                    getMinValue(ColorChannel.GREEN), getMaxValue(ColorChannel.GREEN));
-            return false;
-        }
-        if (_blue < getMinValue(ColorChannel.BLUE) || _blue > getMaxValue(ColorChannel.BLUE)) {
-            logger.debug("Could not set new blue channel value {} - value out of range ({}/{})", _blue,
-                    getMinValue(ColorChannel.BLUE), getMaxValue(ColorChannel.BLUE));
+        if (!isInRange(ColorChannel.RED, _red) || !isInRange(ColorChannel.GREEN, _green)
+                || !isInRange(ColorChannel.BLUE, _blue)) {
             return false;
         }
+        red = _red;
+        green = _green;
+        blue = _blue;
 
         byte[] values = new byte[] { _red, _green, _blue };
         return writeValue(values);
     }
 
+    /**
+     * Check if the value is supported by the given channel.
+     * Channel values are unsigned (0 - 255), so they are compared as unsigned numbers.
+     *
+     * @param _chan color channel
+     * @param _val value to check
+     * @return true if value is within min/max value of the channel
+     */
+    private boolean isInRange(ColorChannel _chan, byte _val) {
+        int value = Byte.toUnsignedInt(_val);
+        int min = Byte.toUnsignedInt(getMinValue(_chan));
+        int max = Byte.toUnsignedInt(getMaxValue(_chan));
+        if (value < min || value > max) {
+            logger.debug("Could not set new {} channel value {} - value out of range ({}/{})", _chan, value, min, max);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Set all channels at once without blocking the caller.
+     *
+     * @param _red red color amount
+     * @param _green green color amount
+     * @param _blue blue color amount
+     *
+     * @return future completed with true if write was successful, false otherwise
+     */
+    public CompletableFuture<Boolean> setAllColorsAsync(byte _red, byte _green, byte _blue) {
+        return submit(() -> setAllColors(_red, _green, _blue));
+    }
+
     /**
      * Read the current value of the given color channel.
+     * All channels are read at once, so reading all channels one after another only
+     * queries the device once if a value cache TTL is configured.
      *
      * @param _chan color channel
      * @return current value or default value
@@ -141,26 +178,40 @@ public class RgbFeature extends AbstractFeature {
             return getDefaultValue(null);
         }
 
-        byte[] readValue = readValue();
-        if (readValue.length == 3) {
-            byte color = readValue[_chan.ordinal()];
-            switch (_chan) {
-                case BLUE:
-                    blue = color;
-                    break;
-                case GREEN:
-                    green = color;
-                    break;
-                case RED:
-                    red = color;
-                    break;
-            }
-            return color;
+        byte[] colors = readColors();
+        if (colors != null) {
+            return colors[_chan.ordinal()];
         }
 
         return getDefaultValue(_chan);
     }
 
+    /**
+     * Read the current value of all color channels.
+     *
+     * @return array of red, green and blue value or null on error
+     */
+    public byte[] readColors() {
+        byte[] readValue = readValue();
+        if (readValue != null && readValue.length == 3) {
+            red = readValue[ColorChannel.RED.ordinal()];
+            green = readValue[ColorChannel.GREEN.ordinal()];
+            blue = readValue[ColorChannel.BLUE.ordinal()];
+            return readValue;
+        }
+        return null;
+    }
+
+    /**
+     * Read the current value of the given color channel without blocking the caller.
+     *
+     * @param _chan color channel
+     * @return future completed with the current value or default value
+     */
+    public CompletableFuture<Byte> readValueAsync(ColorChannel _chan) {
+        return submit(() -> readValue(_chan));
+    }
+
     /**
      * {@inheritDoc}
      */
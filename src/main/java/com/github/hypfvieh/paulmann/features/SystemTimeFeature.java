@@ -3,6 +3,7 @@ package com.github.hypfvieh.paulmann.features;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.concurrent.CompletableFuture;
 
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
@@ -23,6 +24,56 @@ public class SystemTimeFeature extends AbstractFeature {
         if (_date == null) {
             return false;
         }
+        return writeValue(toPayload(_date));
+    }
+
+    /**
+     * Set the device clock to the local clock.
+     * <br>
+     * The device only knows full seconds, so the caller waits until the expected arrival time of the value
+     * (local time plus the one-way transport delay, half of the measured write latency of the device) reaches
+     * the next full second before the write is queued. The time is taken again right before the value is sent,
+     * after the device was connected, and rounded to the closest second of its arrival.
+     *
+     * @return true on success, false otherwise or if interrupted while waiting
+     */
+    public boolean syncDateTime() {
+        long oneWayLatency = Math.max(0, getMeasuredWriteLatency() / 2);
+        long wait = delayToNextSecond(System.currentTimeMillis(), oneWayLatency);
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return writeValue(() -> toPayload(new Date(toArrivalSecond(System.currentTimeMillis(), oneWayLatency))));
+    }
+
+    /**
+     * Time to wait until a value sent now arrives at a full second.
+     *
+     * @param _nowMs current time in milliseconds
+     * @param _oneWayLatencyMs transport delay to the device in milliseconds
+     * @return milliseconds to wait, between 0 and 999
+     */
+    static long delayToNextSecond(long _nowMs, long _oneWayLatencyMs) {
+        return (1000 - (_nowMs + _oneWayLatencyMs) % 1000) % 1000;
+    }
+
+    /**
+     * Full second closest to the arrival of a value sent now.
+     *
+     * @param _nowMs current time in milliseconds
+     * @param _oneWayLatencyMs transport delay to the device in milliseconds
+     * @return arrival time in milliseconds, rounded to full seconds
+     */
+    static long toArrivalSecond(long _nowMs, long _oneWayLatencyMs) {
+        return (_nowMs + _oneWayLatencyMs + 500) / 1000 * 1000;
+    }
+
+    private static byte[] toPayload(Date _date) {
         Calendar cal = GregorianCalendar.getInstance();
         cal.setTime(_date);
 
@@ -44,7 +95,17 @@ public class SystemTimeFeature extends AbstractFeature {
         dateArr[5] = (byte) min;
         dateArr[6] = (byte) sec;
 
-        return writeValue(dateArr);
+        return dateArr;
+    }
+
+    /**
+     * Setup date and time to the device without blocking the caller.
+     *
+     * @param _date date/time to set
+     * @return future completed with true on success, false otherwise
+     */
+    public CompletableFuture<Boolean> setDateTimeAsync(Date _date) {
+        return submit(() -> setDateTime(_date));
     }
 
     /**
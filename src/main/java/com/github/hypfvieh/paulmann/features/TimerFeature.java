@@ -1,5 +1,7 @@
 package com.github.hypfvieh.paulmann.features;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
 
 public class TimerFeature extends AbstractFeature {
@@ -74,6 +76,25 @@ public class TimerFeature extends AbstractFeature {
         return writeValue(timerOpts);
     }
 
+    /**
+     * Read the current timer setup from the device without blocking the caller.
+     * @return future completed when the options were read
+     */
+    public CompletableFuture<Void> readTimerOptionsAsync() {
+        return submit(() -> {
+            readTimerOptions();
+            return null;
+        });
+    }
+
+    /**
+     * Send the currently configured timer options to the device without blocking the caller.
+     * @return future completed with true on success, false otherwise
+     */
+    public CompletableFuture<Boolean> writeTimerOptionsAsync() {
+        return submit(this::writeTimerOptions);
+    }
+
     /**
      * Helper to validate hours.
      * @param _hour to check
@@ -0,0 +1,33 @@
+package com.github.hypfvieh.paulmann.features;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Specifies how values are written to a GATT characteristic.
+ */
+public enum WriteMode {
+    /** Acknowledged write (ATT write request), each write waits for the device confirmation. */
+    REQUEST("request"),
+    /**
+     * Unacknowledged write (ATT write command).
+     * Writes are not confirmed by the device, which allows a much higher write rate (e.g. for color animations
+     * or dimming) but values may get lost silently.
+     */
+    COMMAND("command");
+
+    private final Map<String, Object> options;
+
+    private WriteMode(String _type) {
+        options = Collections.singletonMap("type", _type);
+    }
+
+    /**
+     * Options passed to bluez to select the write type.
+     *
+     * @return unmodifiable map
+     */
+    public Map<String, Object> getOptions() {
+        return options;
+    }
+}
@@ -0,0 +1,232 @@
+package com.github.hypfvieh.paulmann.scenes;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.github.hypfvieh.paulmann.devices.AbstractPaulmannDevice;
+import com.github.hypfvieh.paulmann.devices.DeviceGroup;
+import com.github.hypfvieh.paulmann.devices.DeviceTransaction;
+import com.github.hypfvieh.paulmann.features.AbstractFeature;
+import com.github.hypfvieh.paulmann.features.AbstractPredefinedIntValFeature.PredefinedValue;
+import com.github.hypfvieh.paulmann.features.BrightnessFeature;
+import com.github.hypfvieh.paulmann.features.ColorTemperatureDigitalRGBFeature;
+import com.github.hypfvieh.paulmann.features.ColorTemperatureRGBWFeature;
+import com.github.hypfvieh.paulmann.features.ColorTemperatureWCLampFeature;
+import com.github.hypfvieh.paulmann.features.FeatureIdent;
+import com.github.hypfvieh.paulmann.features.OnOffFeature;
+
+/**
+ * Named set of feature values which is applied to devices as a whole.
+ * <br>
+ * All values are encoded once when the scene is built. Applying the scene writes the encoded payloads
+ * to the features of the device without any further validation or encoding, the same payload buffers
+ * are used for every device. Features not supported by a device are skipped.
+ * <br>
+ * Use {@link #builder(String)} to create a scene.
+ *
+ * @author David M.
+ */
+public final class Scene {
+    private static final byte[] PAYLOAD_ON = AbstractFeature.byteToByteArray(OnOffFeature.MAX_VALUE);
+    private static final byte[] PAYLOAD_OFF = AbstractFeature.byteToByteArray(OnOffFeature.MIN_VALUE);
+
+    private final String name;
+    /** Encoded payloads, never modified or passed to callers after the scene is built */
+    private final Map<FeatureIdent<?>, byte[]> payloads;
+
+    private Scene(String _name, Map<FeatureIdent<?>, byte[]> _payloads) {
+        name = _name;
+        payloads = Collections.unmodifiableMap(new LinkedHashMap<>(_payloads));
+    }
+
+    /**
+     * Start building a new scene.
+     *
+     * @param _name name of the scene
+     * @return {@link Builder}
+     */
+    public static Builder builder(String _name) {
+        return new Builder(_name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Features set by this scene, in order of execution.
+     *
+     * @return unmodifiable list
+     */
+    public List<FeatureIdent<?>> getFeatures() {
+        return Collections.unmodifiableList(new ArrayList<>(payloads.keySet()));
+    }
+
+    /**
+     * Copy of the encoded payload for the given feature.
+     *
+     * @param _ident feature
+     * @return payload or null if feature is not set by this scene
+     */
+    public byte[] getPayload(FeatureIdent<?> _ident) {
+        byte[] payload = payloads.get(_ident);
+        return payload == null ? null : payload.clone();
+    }
+
+    /**
+     * Apply the scene to a single device.
+     * All payloads are written in one transaction using a single connection.
+     *
+     * @param _device target device
+     * @return {@link DeviceTransaction.Result}
+     */
+    public DeviceTransaction.Result apply(AbstractPaulmannDevice _device) {
+        DeviceTransaction transaction = _device.beginTransaction();
+        for (Entry<FeatureIdent<?>, byte[]> entry : payloads.entrySet()) {
+            if (_device.isFeatureSupported(entry.getKey())) {
+                transaction.write(entry.getKey(), entry.getValue());
+            }
+        }
+        return transaction.commit();
+    }
+
+    /**
+     * Apply the scene to all devices of the group in parallel.
+     *
+     * @param _group target devices
+     * @return {@link DeviceGroup.Result}
+     */
+    public DeviceGroup.Result apply(DeviceGroup _group) {
+        return _group.execute(device -> apply(device).isSuccessful());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [name=" + name + ", features=" + payloads.size() + "]";
+    }
+
+    /**
+     * Builder for {@link Scene}. Values are validated and encoded when added.
+     *
+     * @author David M.
+     */
+    public static final class Builder {
+        private final String name;
+        private final Map<FeatureIdent<?>, byte[]> payloads = new LinkedHashMap<>();
+
+        private Builder(String _name) {
+            if (_name == null) {
+                throw new IllegalArgumentException("Scene name required");
+            }
+            name = _name;
+        }
+
+        /**
+         * Turn the device on or off.
+         *
+         * @param _on true to turn on
+         * @return this
+         */
+        public Builder power(boolean _on) {
+            return raw(FeatureIdent.PAULMANN_ON_OFF_FEATURE, _on ? PAYLOAD_ON : PAYLOAD_OFF);
+        }
+
+        /**
+         * Set the brightness.
+         * The value is limited to the range of the {@link BrightnessFeature} and rounded down to its step size,
+         * the same way {@link BrightnessFeature#writeByte(byte)} does.
+         *
+         * @param _percent brightness in percent
+         * @return this
+         */
+        public Builder brightness(int _percent) {
+            int value = AbstractFeature.toValidValue(_percent, BrightnessFeature.MIN_VALUE, BrightnessFeature.MAX_VALUE,
+                    BrightnessFeature.STEP_SIZE);
+            return raw(FeatureIdent.PAULMANN_BRIGHTNESS_FEATURE, AbstractFeature.byteToByteArray((byte) value));
+        }
+
+        /**
+         * Set the color of RGB devices.
+         * Each channel is limited to 0 - 255.
+         *
+         * @param _red red amount
+         * @param _green green amount
+         * @param _blue blue amount
+         * @return this
+         */
+        public Builder color(int _red, int _green, int _blue) {
+            return raw(FeatureIdent.PAULMANN_RGB_FEATURE, new byte[] {toChannel(_red), toChannel(_green), toChannel(_blue)});
+        }
+
+        /**
+         * Set the color temperature of all device types supporting color temperature.
+         * <br>
+         * The value is validated for each device type: WC lamps limit it to their range and round it down to
+         * their step size, RGBW and DigitalRGB lamps only accept their predefined color temperatures.
+         * Device types which do not support the given value keep their color temperature.
+         *
+         * @param _kelvin color temperature in kelvin
+         * @return this
+         */
+        public Builder colorTemperature(int _kelvin) {
+            predefinedValue(FeatureIdent.PAULMANN_COLORTEMP_RGBW_FEATURE, ColorTemperatureRGBWFeature.PREDEFINED_VALUES, _kelvin);
+            int wcValue = AbstractFeature.toValidValue(_kelvin, ColorTemperatureWCLampFeature.MIN_VALUE,
+                    ColorTemperatureWCLampFeature.MAX_VALUE, ColorTemperatureWCLampFeature.STEP_SIZE);
+            payloads.put(FeatureIdent.PAULMANN_COLORTEMP_WCLAMP_FEATURE, BigInteger.valueOf(wcValue).toByteArray());
+            predefinedValue(FeatureIdent.PAULMANN_COLORTEMP_DIGITALRGB_FEATURE, ColorTemperatureDigitalRGBFeature.PREDEFINED_VALUES,
+                    _kelvin);
+            return this;
+        }
+
+        /**
+         * Set an already encoded value for any feature.
+         *
+         * @param _ident feature
+         * @param _payload value as written to the characteristic
+         * @return this
+         */
+        public Builder raw(FeatureIdent<?> _ident, byte[] _payload) {
+            if (_ident == null || _payload == null) {
+                throw new IllegalArgumentException("Feature and payload required");
+            }
+            payloads.put(_ident, _payload.clone());
+            return this;
+        }
+
+        /**
+         * Create the scene.
+         *
+         * @return new immutable {@link Scene}
+         */
+        public Scene build() {
+            return new Scene(name, payloads);
+        }
+
+        /**
+         * Set the value of a feature which only supports predefined values.
+         * If the value is not supported, the feature is not set by this scene.
+         *
+         * @param _ident feature
+         * @param _supported values supported by the feature
+         * @param _value value to set
+         */
+        private void predefinedValue(FeatureIdent<?> _ident, List<PredefinedValue> _supported, int _value) {
+            for (PredefinedValue supported : _supported) {
+                if (supported.getValue() == _value) {
+                    payloads.put(_ident, BigInteger.valueOf(_value).toByteArray());
+                    return;
+                }
+            }
+            payloads.remove(_ident);
+        }
+
+        private static byte toChannel(int _value) {
+            return (byte) Math.max(0, Math.min(255, _value));
+        }
+    }
+}
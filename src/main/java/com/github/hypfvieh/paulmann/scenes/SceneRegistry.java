@@ -0,0 +1,80 @@
+package com.github.hypfvieh.paulmann.scenes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.hypfvieh.paulmann.devices.DeviceGroup;
+
+/**
+ * Registry of named {@link Scene}s, so scenes are built once and can be applied by name.
+ *
+ * @author David M.
+ */
+public class SceneRegistry {
+
+    private static final SceneRegistry INSTANCE = new SceneRegistry();
+
+    /** Map of scene name -> scene */
+    private final Map<String, Scene> scenes = new ConcurrentHashMap<>();
+
+    private SceneRegistry() {
+    }
+
+    public static SceneRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Register a scene, replacing any scene with the same name.
+     *
+     * @param _scene scene to register
+     */
+    public void register(Scene _scene) {
+        if (_scene != null) {
+            scenes.put(_scene.getName(), _scene);
+        }
+    }
+
+    /**
+     * Remove the scene with the given name.
+     *
+     * @param _name scene name
+     * @return removed scene or null
+     */
+    public Scene remove(String _name) {
+        return _name == null ? null : scenes.remove(_name);
+    }
+
+    /**
+     * Returns the scene with the given name.
+     *
+     * @param _name scene name
+     * @return scene or null if no such scene is registered
+     */
+    public Scene get(String _name) {
+        return _name == null ? null : scenes.get(_name);
+    }
+
+    /**
+     * Names of all registered scenes.
+     *
+     * @return list, maybe empty but never null
+     */
+    public List<String> getSceneNames() {
+        return new ArrayList<>(scenes.keySet());
+    }
+
+    /**
+     * Apply the scene with the given name to all devices of the group.
+     *
+     * @param _name scene name
+     * @param _group target devices
+     * @return {@link DeviceGroup.Result} or null if no such scene is registered
+     */
+    public DeviceGroup.Result apply(String _name, DeviceGroup _group) {
+        Scene scene = get(_name);
+        return scene == null ? null : scene.apply(_group);
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.hypfvieh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.hypfvieh.DeviceTopologyCache.TopologyEntry;
+
+/**
+ * Tests of the file format used by {@link DeviceTopologyCache}.
+ *
+ * @author David M.
+ */
+public class DeviceTopologyCacheTest {
+
+    private static final String SERVICE_PATH = "/org/bluez/hci0/dev_00_11_22_33_44_55/service000c";
+
+    @Test
+    public void testFormatParseRoundTrip() {
+        for (String alias : Arrays.asList("Lamp-W", "Lamp\tW", "Lamp,W", "Lamp=W", "100%", "%41", "Lamp\nW", "")) {
+            TopologyEntry entry = createEntry(alias);
+            TopologyEntry parsed = TopologyEntry.parse(entry.format());
+
+            assertNotNull("Alias " + alias, parsed);
+            assertEquals(entry, parsed);
+            assertEquals(alias, parsed.getAlias());
+            assertEquals(entry.getCharacteristics(), parsed.getCharacteristics());
+        }
+    }
+
+    @Test
+    public void testParsePlainAlias() {
+        TopologyEntry parsed = TopologyEntry.parse("00:11:22:33:44:55\tLamp-RGBW\t0000ffb0\t" + SERVICE_PATH + "\tffb1=" + SERVICE_PATH + "/char000d");
+
+        assertNotNull(parsed);
+        assertEquals("Lamp-RGBW", parsed.getAlias());
+        assertEquals(SERVICE_PATH + "/char000d", parsed.getCharacteristics().get("ffb1"));
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        Path file = Files.createTempFile("topology", ".cache");
+        try {
+            DeviceTopologyCache cache = new DeviceTopologyCache(file);
+            cache.save(Arrays.asList(createEntry("Living,room\tlamp=1"), createEntry("Lamp-W")));
+
+            List<TopologyEntry> loaded = cache.load();
+            assertEquals(2, loaded.size());
+            assertEquals("Living,room\tlamp=1", loaded.get(0).getAlias());
+            assertEquals("Lamp-W", loaded.get(1).getAlias());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static TopologyEntry createEntry(String _alias) {
+        Map<String, String> chars = new LinkedHashMap<>();
+        chars.put("0000ffb1-0000-1000-8000-00805f9b34fb", SERVICE_PATH + "/char000d");
+        chars.put("0000ffb2-0000-1000-8000-00805f9b34fb", SERVICE_PATH + "/char000f");
+        return new TopologyEntry("00:11:22:33:44:55", _alias, "0000ffb0-0000-1000-8000-00805f9b34fb", SERVICE_PATH, chars);
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.hypfvieh.paulmann;
+
+/**
+ * JUnit category of tests which measure time, throughput or heap usage.
+ * <br>
+ * These tests depend on the load of the machine and are only run with the maven profile 'benchmark'.
+ *
+ * @author David M.
+ */
+public interface Benchmark {
+}
@@ -0,0 +1,88 @@
+package com.github.hypfvieh.paulmann;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
+
+/**
+ * Bluetooth device which does not need a bluez backend.
+ * <br>
+ * Connecting takes the configured latency, like a BLE connect done by bluez.
+ *
+ * @author David M.
+ */
+public class SimulatedBluetoothDevice extends BluetoothDevice {
+
+    private final String dbusPath;
+    private final String address;
+    private final String alias;
+    private final long connectLatencyMs;
+
+    private final AtomicInteger connects = new AtomicInteger();
+    private volatile boolean connected;
+    private volatile boolean reachable = true;
+
+    public SimulatedBluetoothDevice(String _address, String _alias, long _connectLatencyMs) {
+        this("/org/bluez/hci0", _address, _alias, _connectLatencyMs);
+    }
+
+    public SimulatedBluetoothDevice(String _adapterPath, String _address, String _alias, long _connectLatencyMs) {
+        super(null, null, _adapterPath + "/dev_" + _address.replace(':', '_'), null);
+        dbusPath = _adapterPath + "/dev_" + _address.replace(':', '_');
+        address = _address;
+        alias = _alias;
+        connectLatencyMs = _connectLatencyMs;
+    }
+
+    @Override
+    public boolean connect() {
+        SimulatedLink.delay(connectLatencyMs);
+        connects.incrementAndGet();
+        connected = reachable;
+        return connected;
+    }
+
+    @Override
+    public boolean disconnect() {
+        connected = false;
+        return true;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public String getDbusPath() {
+        return dbusPath;
+    }
+
+    @Override
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public String getAlias() {
+        return alias;
+    }
+
+    /**
+     * Simulate a device which is out of range, all following connects will fail.
+     *
+     * @param _reachable false to let connects fail
+     */
+    public void setReachable(boolean _reachable) {
+        reachable = _reachable;
+    }
+
+    /**
+     * Number of connects done so far.
+     *
+     * @return int
+     */
+    public int getConnectCount() {
+        return connects.get();
+    }
+}
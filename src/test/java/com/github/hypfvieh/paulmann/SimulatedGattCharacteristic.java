@@ -0,0 +1,145 @@
+package com.github.hypfvieh.paulmann;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+
+/**
+ * GATT characteristic of a {@link SimulatedGattService}.
+ * <br>
+ * Stores the last written value and delays every access as configured by the {@link SimulatedLink}.
+ *
+ * @author David M.
+ */
+public class SimulatedGattCharacteristic extends BluetoothGattCharacteristic {
+
+    private final BluetoothGattService service;
+    private final String uuid;
+    private final SimulatedLink link;
+
+    private final AtomicInteger requestWrites = new AtomicInteger();
+    private final AtomicInteger commandWrites = new AtomicInteger();
+    private volatile byte[] value;
+
+    /** writes wait for this latch before they complete, maybe null */
+    private volatile CountDownLatch writeGate;
+    /** number of started writes, guarded by this */
+    private int startedWrites;
+
+    SimulatedGattCharacteristic(SimulatedGattService _service, String _uuid, SimulatedLink _link) {
+        super(null, _service, _service.getDbusPath() + "/char" + _uuid, null);
+        service = _service;
+        uuid = _uuid;
+        link = _link;
+    }
+
+    @Override
+    public void writeValue(byte[] _value, Map<String, Object> _options) {
+        synchronized (this) {
+            startedWrites++;
+            notifyAll();
+        }
+        CountDownLatch gate = writeGate;
+        if (gate != null) {
+            try {
+                gate.await();
+            } catch (InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (_options != null && "command".equals(_options.get("type"))) {
+            SimulatedLink.delay(link.getCommandLatency());
+            commandWrites.incrementAndGet();
+        } else {
+            SimulatedLink.delay(link.getRequestLatency());
+            requestWrites.incrementAndGet();
+        }
+        value = _value.clone();
+    }
+
+    @Override
+    public byte[] readValue(Map<String, Object> _options) {
+        SimulatedLink.delay(link.getRequestLatency());
+        byte[] current = value;
+        return current == null ? null : current.clone();
+    }
+
+    @Override
+    public void startNotify() {
+    }
+
+    @Override
+    public void stopNotify() {
+    }
+
+    @Override
+    public String getUuid() {
+        return uuid;
+    }
+
+    @Override
+    public BluetoothGattService getService() {
+        return service;
+    }
+
+    /**
+     * Last value written to this characteristic.
+     *
+     * @return value or null if nothing was written yet
+     */
+    public byte[] getValue() {
+        return value;
+    }
+
+    /**
+     * Let all following writes wait until the given latch is released.
+     *
+     * @param _gate latch, null to complete writes immediately
+     */
+    public void setWriteGate(CountDownLatch _gate) {
+        writeGate = _gate;
+    }
+
+    /**
+     * Waits until the given number of writes was started.
+     *
+     * @param _count number of writes
+     * @param _timeout maximum time to wait
+     * @param _unit unit of _timeout
+     * @return true if the writes were started in time
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public synchronized boolean awaitStartedWrites(int _count, long _timeout, TimeUnit _unit) throws InterruptedException {
+        long end = System.nanoTime() + _unit.toNanos(_timeout);
+        while (startedWrites < _count) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Number of acknowledged writes (write requests).
+     *
+     * @return int
+     */
+    public int getRequestWrites() {
+        return requestWrites.get();
+    }
+
+    /**
+     * Number of unacknowledged writes (write commands).
+     *
+     * @return int
+     */
+    public int getCommandWrites() {
+        return commandWrites.get();
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.hypfvieh.paulmann;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothDevice;
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattCharacteristic;
+import com.github.hypfvieh.bluetooth.wrapper.BluetoothGattService;
+
+/**
+ * GATT service of a {@link SimulatedBluetoothDevice}.
+ *
+ * @author David M.
+ */
+public class SimulatedGattService extends BluetoothGattService {
+
+    private final BluetoothDevice device;
+    private final String uuid;
+    private final List<BluetoothGattCharacteristic> characteristics = new CopyOnWriteArrayList<>();
+
+    public SimulatedGattService(SimulatedBluetoothDevice _device, String _uuid) {
+        super(null, _device, "/org/bluez/hci0/dev_" + _device.getAddress().replace(':', '_') + "/service0001", null);
+        device = _device;
+        uuid = _uuid;
+    }
+
+    /**
+     * Adds a characteristic with the given UUID to this service.
+     *
+     * @param _uuid characteristic UUID
+     * @param _link timings of the simulated link
+     * @return created characteristic
+     */
+    public SimulatedGattCharacteristic addCharacteristic(String _uuid, SimulatedLink _link) {
+        SimulatedGattCharacteristic characteristic = new SimulatedGattCharacteristic(this, _uuid, _link);
+        characteristics.add(characteristic);
+        return characteristic;
+    }
+
+    @Override
+    public BluetoothDevice getDevice() {
+        return device;
+    }
+
+    @Override
+    public String getUuid() {
+        return uuid;
+    }
+
+    @Override
+    public List<BluetoothGattCharacteristic> getGattCharacteristics() {
+        return characteristics;
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.hypfvieh.paulmann;
+
+/**
+ * Timings of a simulated BLE link.
+ * <br>
+ * A write request waits for the confirmation of the device (about two connection intervals),
+ * a write command only waits until bluez accepted the value.
+ *
+ * @author David M.
+ */
+public class SimulatedLink {
+
+    private final long requestLatency;
+    private final long commandLatency;
+
+    public SimulatedLink(long _requestLatencyMs, long _commandLatencyMs) {
+        requestLatency = _requestLatencyMs;
+        commandLatency = _commandLatencyMs;
+    }
+
+    /**
+     * Time in milliseconds an acknowledged write or a read takes.
+     *
+     * @return long
+     */
+    public long getRequestLatency() {
+        return requestLatency;
+    }
+
+    /**
+     * Time in milliseconds an unacknowledged write takes.
+     *
+     * @return long
+     */
+    public long getCommandLatency() {
+        return commandLatency;
+    }
+
+    static void delay(long _millis) {
+        if (_millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(_millis);
+        } catch (InterruptedException _ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
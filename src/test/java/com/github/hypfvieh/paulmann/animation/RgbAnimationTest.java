@@ -0,0 +1,132 @@
+package com.github.hypfvieh.paulmann.animation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattCharacteristic;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.animation.RgbAnimation.AnimationStats;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.features.FeatureFactory;
+import com.github.hypfvieh.paulmann.features.FeatureIdent;
+import com.github.hypfvieh.paulmann.features.RgbFeature;
+import com.github.hypfvieh.paulmann.features.WriteMode;
+
+/**
+ * Tests stopping a running {@link RgbAnimation}.
+ *
+ * @author David M.
+ */
+public class RgbAnimationTest {
+    private static final String ADDRESS = "00:00:00:00:22:01";
+
+    private SimulatedBluetoothDevice device;
+    private SimulatedGattCharacteristic characteristic;
+    private RgbFeature feature;
+    private RgbAnimation animation;
+
+    @Before
+    public void before() {
+        device = new SimulatedBluetoothDevice(ADDRESS, "Lamp-RGB", 0);
+        SimulatedGattService service = new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+        characteristic = service.addCharacteristic("0000ffb2-0000-1000-8000-00805f9b34fb", new SimulatedLink(0, 0));
+        feature = (RgbFeature) FeatureFactory.getInstance().createFeature(FeatureIdent.PAULMANN_RGB_FEATURE, service);
+        animation = new RgbAnimation((t, f, e) -> new byte[] {(byte) f, 0, 0});
+        animation.addTarget(feature);
+        animation.setFps(RgbAnimation.MAX_FPS);
+    }
+
+    @After
+    public void after() {
+        animation.stop();
+        characteristic.setWriteGate(null);
+        ConnectionManager.getInstance().close(device);
+    }
+
+    @Test
+    public void testQueuedFrameIsCancelledOnStop() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        CompletableFuture<Boolean> busy = ConnectionManager.getInstance().getSession(device).getCommandQueue().submit(() -> {
+            try {
+                return blocker.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException _ex) {
+                return false;
+            }
+        });
+
+        animation.start();
+        assertTrue(awaitSent(1));
+        animation.stop();
+        blocker.countDown();
+        busy.get(5, TimeUnit.SECONDS);
+        feature.writeValue(new byte[] {1, 2, 3}); // queued behind the cancelled frame
+
+        assertEquals(WriteMode.REQUEST, feature.getWriteMode());
+        assertEquals(0, characteristic.getCommandWrites());
+        assertEquals(1, characteristic.getRequestWrites());
+        AnimationStats stats = animation.getStats().get(ADDRESS);
+        assertEquals(0, stats.getFramesSent());
+        assertTrue(stats.getFramesDropped() >= 1);
+    }
+
+    @Test
+    public void testRunningFrameIsAwaitedOnStop() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        characteristic.setWriteGate(gate);
+
+        animation.start();
+        assertTrue(characteristic.awaitStartedWrites(1, 5, TimeUnit.SECONDS));
+
+        Thread stopper = new Thread(animation::stop);
+        stopper.start();
+        stopper.join(200);
+        assertTrue("stop must wait for the running frame", stopper.isAlive());
+        assertEquals(WriteMode.COMMAND, feature.getWriteMode());
+
+        gate.countDown();
+        stopper.join(5000);
+        assertFalse(stopper.isAlive());
+
+        assertEquals(WriteMode.REQUEST, feature.getWriteMode());
+        assertEquals(1, characteristic.getCommandWrites());
+        assertEquals(0, characteristic.getRequestWrites());
+        assertEquals(1, animation.getStats().get(ADDRESS).getFramesSent());
+    }
+
+    @Test
+    public void testStatsFrozenOnStop() throws Exception {
+        animation.start();
+        assertTrue(awaitSent(3));
+        animation.stop();
+
+        AnimationStats stopped = animation.getStats().get(ADDRESS);
+        Thread.sleep(100);
+        AnimationStats later = animation.getStats().get(ADDRESS);
+
+        assertTrue(stopped.getFps() > 0);
+        assertEquals(stopped.getFps(), later.getFps(), 0.0001);
+        assertEquals(stopped.getFramesSent(), later.getFramesSent());
+    }
+
+    private boolean awaitSent(long _frames) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < end) {
+            if (animation.getStats().get(ADDRESS).getFramesSent() >= _frames) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return false;
+    }
+}
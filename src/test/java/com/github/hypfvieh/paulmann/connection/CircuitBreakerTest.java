@@ -0,0 +1,77 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.connection.CircuitBreaker.State;
+
+/**
+ * Tests of the {@link CircuitBreaker} used by {@link DeviceSession}.
+ *
+ * @author David M.
+ */
+public class CircuitBreakerTest {
+
+    private int failureThreshold;
+    private long openDuration;
+
+    @Before
+    public void before() {
+        failureThreshold = ConnectionManager.getInstance().getFailureThreshold();
+        openDuration = ConnectionManager.getInstance().getOpenDuration();
+    }
+
+    @After
+    public void after() {
+        ConnectionManager.getInstance().setFailureThreshold(failureThreshold);
+        ConnectionManager.getInstance().setOpenDuration(openDuration);
+    }
+
+    @Test
+    public void testOneBreakerPerMac() {
+        SimulatedBluetoothDevice viaHci0 = new SimulatedBluetoothDevice("/org/bluez/hci0", "00:00:00:00:09:01", "Lamp-W", 0);
+        SimulatedBluetoothDevice viaHci1 = new SimulatedBluetoothDevice("/org/bluez/hci1", "00:00:00:00:09:01", "Lamp-W", 0);
+        try {
+            DeviceSession session0 = ConnectionManager.getInstance().getSession(viaHci0);
+            DeviceSession session1 = ConnectionManager.getInstance().getSession(viaHci1);
+
+            assertNotSame(session0, session1);
+            assertSame(session0.getCircuitBreaker(), session1.getCircuitBreaker());
+        } finally {
+            ConnectionManager.getInstance().close(viaHci0);
+            ConnectionManager.getInstance().close(viaHci1);
+        }
+    }
+
+    @Test
+    public void testAcquireFinishesHalfOpenProbe() throws InterruptedException {
+        ConnectionManager.getInstance().setFailureThreshold(1);
+        ConnectionManager.getInstance().setOpenDuration(50);
+
+        SimulatedBluetoothDevice device = new SimulatedBluetoothDevice("00:00:00:00:09:02", "Lamp-W", 0);
+        DeviceSession session = ConnectionManager.getInstance().getSession(device);
+        try {
+            device.setReachable(false);
+            assertFalse(session.acquire());
+            assertEquals(State.OPEN, session.getCircuitBreaker().getState());
+
+            Thread.sleep(100);
+            assertEquals(State.HALF_OPEN, session.getCircuitBreaker().getState());
+
+            device.setReachable(true);
+            assertTrue(session.acquire()); // acquire only, e.g. enabling notifications
+            session.release();
+            assertEquals(State.CLOSED, session.getCircuitBreaker().getState());
+        } finally {
+            ConnectionManager.getInstance().close(device);
+        }
+    }
+}
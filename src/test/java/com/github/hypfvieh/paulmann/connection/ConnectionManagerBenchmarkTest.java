@@ -0,0 +1,116 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.paulmann.Benchmark;
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.features.BrightnessFeature;
+
+/**
+ * Compares the feature write rate with a connect per operation against connections kept open by the
+ * {@link ConnectionManager}, using a simulated device with injected connect latency.
+ * <br>
+ * The default tests check the number of connects, the throughput is only measured by the {@link Benchmark} tests.
+ *
+ * @author David M.
+ */
+public class ConnectionManagerBenchmarkTest {
+    private static final long CONNECT_LATENCY_MS = 50;
+    private static final SimulatedLink LINK = new SimulatedLink(2, 1);
+    private static final int OPERATIONS = 20;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private long idleTimeout;
+
+    @Before
+    public void before() {
+        idleTimeout = ConnectionManager.getInstance().getIdleTimeout();
+    }
+
+    @After
+    public void after() {
+        ConnectionManager.getInstance().setIdleTimeout(idleTimeout);
+    }
+
+    @Test
+    public void testKeptConnectionIsReused() {
+        SimulatedBluetoothDevice perOpDevice = new SimulatedBluetoothDevice("00:00:00:00:01:04", "Lamp-W", 0);
+        SimulatedBluetoothDevice keptDevice = new SimulatedBluetoothDevice("00:00:00:00:01:05", "Lamp-W", 0);
+
+        ConnectionManager.getInstance().setIdleTimeout(0);
+        run(perOpDevice);
+
+        ConnectionManager.getInstance().setIdleTimeout(ConnectionManager.DEFAULT_IDLE_TIMEOUT_MS);
+        run(keptDevice);
+
+        assertEquals(OPERATIONS, perOpDevice.getConnectCount());
+        assertEquals(1, keptDevice.getConnectCount());
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void testKeptConnectionIncreasesOpsPerSecond() {
+        SimulatedBluetoothDevice perOpDevice = new SimulatedBluetoothDevice("00:00:00:00:01:01", "Lamp-W", CONNECT_LATENCY_MS);
+        SimulatedBluetoothDevice keptDevice = new SimulatedBluetoothDevice("00:00:00:00:01:02", "Lamp-W", CONNECT_LATENCY_MS);
+
+        ConnectionManager.getInstance().setIdleTimeout(0); // previous behavior: disconnect after each operation
+        double perOpRate = run(perOpDevice);
+
+        ConnectionManager.getInstance().setIdleTimeout(ConnectionManager.DEFAULT_IDLE_TIMEOUT_MS);
+        double keptRate = run(keptDevice);
+
+        logger.info("Connect per operation: {} ops/sec, kept connection: {} ops/sec", Math.round(perOpRate), Math.round(keptRate));
+
+        assertTrue("Kept connection should be at least 5 times faster", keptRate > perOpRate * 5);
+    }
+
+    @Test
+    public void testConnectionClosedAfterIdleTimeout() throws InterruptedException {
+        SimulatedBluetoothDevice device = new SimulatedBluetoothDevice("00:00:00:00:01:03", "Lamp-W", 0);
+        BrightnessFeature feature = createFeature(device);
+
+        ConnectionManager.getInstance().setIdleTimeout(100);
+        try {
+            assertTrue(feature.writeByte((byte) 50));
+            assertTrue(device.isConnected());
+
+            long end = System.currentTimeMillis() + 5000;
+            while (device.isConnected() && System.currentTimeMillis() < end) {
+                Thread.sleep(20);
+            }
+            assertFalse("Connection should be closed when idle", device.isConnected());
+        } finally {
+            ConnectionManager.getInstance().close(device);
+        }
+    }
+
+    private double run(SimulatedBluetoothDevice _device) {
+        BrightnessFeature feature = createFeature(_device);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                assertTrue(feature.writeByte((byte) (i % 20 * 5)));
+            }
+            return OPERATIONS / ((System.nanoTime() - start) / 1_000_000_000d);
+        } finally {
+            ConnectionManager.getInstance().close(_device);
+        }
+    }
+
+    private static BrightnessFeature createFeature(SimulatedBluetoothDevice _device) {
+        SimulatedGattService service = new SimulatedGattService(_device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+        return new BrightnessFeature(service.addCharacteristic("0000ffb8-0000-1000-8000-00805f9b34fb", LINK));
+    }
+}
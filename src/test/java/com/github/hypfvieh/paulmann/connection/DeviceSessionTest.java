@@ -0,0 +1,104 @@
+package com.github.hypfvieh.paulmann.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+
+/**
+ * Tests of {@link DeviceSession}.
+ *
+ * @author David M.
+ */
+public class DeviceSessionTest {
+
+    private SimulatedBluetoothDevice device;
+    private DeviceSession session;
+
+    @Before
+    public void before() {
+        device = new SimulatedBluetoothDevice("00:00:00:00:10:01", "Lamp-W", 0);
+        session = ConnectionManager.getInstance().getSession(device);
+    }
+
+    @After
+    public void after() {
+        ConnectionManager.getInstance().close(device);
+    }
+
+    @Test
+    public void testExecuteQueuedWithTimeout() throws Exception {
+        assertEquals("done", session.executeQueued(CommandPriority.AUTOMATION, () -> "done", 5000));
+    }
+
+    @Test
+    public void testTimedOutCommandIsNotExecuted() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        session.getCommandQueue().submit(CommandPriority.INTERACTIVE, () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        AtomicBoolean executed = new AtomicBoolean();
+        try {
+            session.executeQueued(CommandPriority.AUTOMATION, () -> executed.getAndSet(true), 100);
+            fail("TimeoutException expected");
+        } catch (TimeoutException _ex) {
+            // expected, the queue is blocked
+        }
+
+        release.countDown();
+        assertTrue(session.getCommandQueue().awaitIdle(5000));
+        assertFalse("Cancelled command must not run", executed.get());
+    }
+
+    @Test
+    public void testWaitIsInterruptible() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        session.getCommandQueue().submit(CommandPriority.INTERACTIVE, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException _ex) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiting = new Thread(() -> {
+            try {
+                session.executeQueued(CommandPriority.AUTOMATION, () -> null, 60000);
+            } catch (InterruptedException _ex) {
+                interrupted.set(true);
+            } catch (Exception _ex) {
+                // not expected
+            }
+        });
+        waiting.start();
+        Thread.sleep(100);
+        waiting.interrupt();
+        waiting.join(5000);
+        release.countDown();
+
+        assertFalse(waiting.isAlive());
+        assertTrue(interrupted.get());
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.hypfvieh.paulmann.devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.features.FeatureIdent;
+
+/**
+ * Tests of the lazy feature creation in {@link AbstractPaulmannDevice}.
+ *
+ * @author David M.
+ */
+public class AbstractPaulmannDeviceTest {
+
+    private SimulatedBluetoothDevice device;
+    private LampW lamp;
+
+    @Before
+    public void before() {
+        device = new SimulatedBluetoothDevice("00:00:00:00:14:01", LampW.DEVICE_ALIAS, 0);
+        SimulatedGattService service = new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+        service.addCharacteristic("0000ffb7-0000-1000-8000-00805f9b34fb", new SimulatedLink(0, 0));
+        service.addCharacteristic("0000ffb8-0000-1000-8000-00805f9b34fb", new SimulatedLink(0, 0));
+        lamp = new LampW(service);
+    }
+
+    @After
+    public void after() {
+        ConnectionManager.getInstance().close(device);
+    }
+
+    @Test
+    public void testConfiguredFeaturesDoNotConnect() {
+        assertTrue(lamp.getConfiguredFeatures().isEmpty());
+        assertEquals(0, device.getConnectCount());
+    }
+
+    @Test
+    public void testConfiguredFeaturesAfterPrewarm() {
+        assertEquals(2, lamp.prewarmFeatures());
+        assertEquals(1, device.getConnectCount());
+
+        assertEquals(2, lamp.getConfiguredFeatures().size());
+        assertNotNull(lamp.getConfiguredFeatures().get(FeatureIdent.PAULMANN_BRIGHTNESS_FEATURE));
+        assertNotNull(lamp.getConfiguredFeatures().get(FeatureIdent.PAULMANN_ON_OFF_FEATURE));
+    }
+
+    @Test
+    public void testConfiguredFeaturesAfterFirstUse() {
+        assertNotNull(lamp.getFeature(FeatureIdent.PAULMANN_BRIGHTNESS_FEATURE));
+
+        assertEquals(1, lamp.getConfiguredFeatures().size());
+        assertNotNull(lamp.getConfiguredFeatures().get(FeatureIdent.PAULMANN_BRIGHTNESS_FEATURE));
+    }
+}
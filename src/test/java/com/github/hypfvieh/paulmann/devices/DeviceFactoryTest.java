@@ -0,0 +1,92 @@
+package com.github.hypfvieh.paulmann.devices;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+
+/**
+ * Tests of the {@link DeviceFactory} registry.
+ *
+ * @author David M.
+ */
+public class DeviceFactoryTest {
+
+    @Test
+    public void testBuiltInDevices() {
+        Map<String, Class<? extends AbstractPaulmannDevice>> deviceClasses = new LinkedHashMap<>();
+        deviceClasses.put(LampW.DEVICE_ALIAS, LampW.class);
+        deviceClasses.put(LampWC.DEVICE_ALIAS, LampWC.class);
+        deviceClasses.put(LampRGB.DEVICE_ALIAS, LampRGB.class);
+        deviceClasses.put(LampRGBW.DEVICE_ALIAS, LampRGBW.class);
+
+        SimulatedGattService service = createService(LampW.DEVICE_ALIAS);
+        for (Entry<String, Class<? extends AbstractPaulmannDevice>> entry : deviceClasses.entrySet()) {
+            assertTrue(entry.getKey(), DeviceFactory.getInstance().isSupported(entry.getKey()));
+            AbstractPaulmannDevice device = DeviceFactory.getInstance().createDevice(entry.getKey(), service);
+            assertNotNull(entry.getKey(), device);
+            assertEquals(entry.getValue(), device.getClass());
+            assertSame(service, device.getGattService());
+        }
+    }
+
+    @Test
+    public void testCreateDeviceUsesAliasOfDevice() {
+        AbstractPaulmannDevice device = DeviceFactory.getInstance().createDevice(createService(LampRGB.DEVICE_ALIAS));
+        assertNotNull(device);
+        assertEquals(LampRGB.class, device.getClass());
+    }
+
+    @Test
+    public void testRegister() {
+        String alias = "Lamp-Test-Register";
+        assertFalse(DeviceFactory.getInstance().isSupported(alias));
+
+        DeviceFactory.getInstance().register(alias, LampW::new);
+
+        assertTrue(DeviceFactory.getInstance().isSupported(alias));
+        assertTrue(DeviceFactory.getInstance().getSupportedAliases().contains(alias));
+        AbstractPaulmannDevice device = DeviceFactory.getInstance().createDevice(alias, createService(alias));
+        assertNotNull(device);
+        assertEquals(LampW.class, device.getClass());
+    }
+
+    @Test
+    public void testUnknownAlias() {
+        SimulatedGattService service = createService("Lamp-Unknown");
+
+        assertFalse(DeviceFactory.getInstance().isSupported("Lamp-Unknown"));
+        assertFalse(DeviceFactory.getInstance().isSupported(null));
+        assertNull(DeviceFactory.getInstance().createDevice("Lamp-Unknown", service));
+        assertNull(DeviceFactory.getInstance().createDevice(service));
+        assertNull(DeviceFactory.getInstance().createDevice(null, service));
+        assertNull(DeviceFactory.getInstance().createDevice(LampW.DEVICE_ALIAS, null));
+    }
+
+    @Test
+    public void testFailingConstructor() {
+        String alias = "Lamp-Test-Failing";
+        DeviceFactory.getInstance().register(alias, s -> {
+            throw new IllegalStateException("Simulated failure");
+        });
+
+        assertTrue(DeviceFactory.getInstance().isSupported(alias));
+        assertNull(DeviceFactory.getInstance().createDevice(alias, createService(alias)));
+    }
+
+    private static SimulatedGattService createService(String _alias) {
+        SimulatedBluetoothDevice device = new SimulatedBluetoothDevice("00:00:00:00:15:01", _alias, 0);
+        return new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.hypfvieh.paulmann.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.paulmann.Benchmark;
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattCharacteristic;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.connection.WriteLatencyTracker;
+
+/**
+ * Tests of the cached writes.
+ * <br>
+ * The default test checks that values received while a write is running are coalesced into one write.
+ * The soak {@link Benchmark} lets several sliders send 60 values per second each
+ * and checks that the thread count and heap usage stay flat.
+ *
+ * @author David M.
+ */
+public class CachedWriteSoakTest {
+    private static final int FEATURES = 4;
+    private static final int EVENTS_PER_SECOND = 60;
+    private static final long WARMUP_MS = 1000;
+    private static final long SOAK_MS = 3000;
+    /** allowed heap growth during the soak, everything above indicates values piling up */
+    private static final long MAX_HEAP_GROWTH = 16 * 1024 * 1024;
+
+    private static final SimulatedLink LINK = new SimulatedLink(20, 5);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final List<SimulatedBluetoothDevice> devices = new ArrayList<>();
+    private final List<SimulatedGattCharacteristic> characteristics = new ArrayList<>();
+    private final List<BrightnessFeature> features = new ArrayList<>();
+
+    private int events;
+    private byte lastValue;
+
+    @After
+    public void after() {
+        for (SimulatedBluetoothDevice device : devices) {
+            ConnectionManager.getInstance().close(device);
+        }
+    }
+
+    @Test
+    public void testValuesCoalescedWhileWriting() throws InterruptedException {
+        createFeatures(1);
+        SimulatedGattCharacteristic characteristic = characteristics.get(0);
+        BrightnessFeature feature = features.get(0);
+
+        CountDownLatch gate = new CountDownLatch(1);
+        characteristic.setWriteGate(gate);
+        feature.writeCached(BrightnessFeature.MIN_VALUE);
+        assertTrue("First write not started", characteristic.awaitStartedWrites(1, 5, TimeUnit.SECONDS));
+
+        // all values received while the first write is running end up in one more write
+        for (int i = 0; i < 1000; i++) {
+            lastValue = (byte) (i % 21 * BrightnessFeature.STEP_SIZE);
+            feature.writeCached(lastValue);
+        }
+        characteristic.setWriteGate(null);
+        gate.countDown();
+
+        long end = System.currentTimeMillis() + 5000;
+        while (characteristic.getRequestWrites() < 2 && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, characteristic.getRequestWrites());
+        assertArrayEquals("Latest value has to win", new byte[] {lastValue}, characteristic.getValue());
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void testThreadsAndHeapStayFlat() throws InterruptedException {
+        createFeatures(FEATURES);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        slide(WARMUP_MS, null); // starts the scheduler and command queue threads
+
+        long heapBefore = usedHeap();
+        int threadsBefore = threads.getThreadCount();
+        long startedBefore = threads.getTotalStartedThreadCount();
+        int writesBefore = totalWrites();
+        events = 0;
+
+        int peakThreads = slide(SOAK_MS, threads);
+
+        Thread.sleep(WriteLatencyTracker.MAX_WINDOW_MS + 200); // let the last window flush
+        long startedThreads = threads.getTotalStartedThreadCount() - startedBefore;
+        long heapGrowth = usedHeap() - heapBefore;
+        int writes = totalWrites() - writesBefore;
+
+        logger.info("{} slider events, {} writes, threads {} -> peak {}, {} threads started, heap growth {} KiB",
+                events, writes, threadsBefore, peakThreads, startedThreads, heapGrowth / 1024);
+
+        assertTrue("Thread count grew from " + threadsBefore + " to " + peakThreads,
+                peakThreads <= threadsBefore + FEATURES);
+        assertTrue(startedThreads + " threads started during soak", startedThreads <= FEATURES);
+        assertTrue("Heap grew by " + heapGrowth + " bytes", heapGrowth < MAX_HEAP_GROWTH);
+        assertTrue("Writes were not coalesced (" + writes + " writes for " + events + " events)", writes < events / 2);
+        for (SimulatedGattCharacteristic characteristic : characteristics) {
+            assertArrayEquals("Latest value has to win", new byte[] {lastValue}, characteristic.getValue());
+        }
+    }
+
+    private void createFeatures(int _count) {
+        for (int i = 0; i < _count; i++) {
+            SimulatedBluetoothDevice device = new SimulatedBluetoothDevice("00:00:00:00:03:0" + i, "Lamp-W", 0);
+            SimulatedGattService service = new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+            SimulatedGattCharacteristic characteristic = service.addCharacteristic("0000ffb8-0000-1000-8000-00805f9b34fb", LINK);
+            devices.add(device);
+            characteristics.add(characteristic);
+            features.add(new BrightnessFeature(characteristic));
+        }
+    }
+
+    /**
+     * Moves all sliders for the given time.
+     *
+     * @param _durationMs duration
+     * @param _threads used to sample the thread count, maybe null
+     * @return highest sampled thread count
+     */
+    private int slide(long _durationMs, ThreadMXBean _threads) throws InterruptedException {
+        long intervalMs = 1000 / EVENTS_PER_SECOND;
+        long end = System.currentTimeMillis() + _durationMs;
+        int peak = 0;
+        for (int i = 0; System.currentTimeMillis() < end; i++) {
+            lastValue = (byte) (i % 21 * BrightnessFeature.STEP_SIZE);
+            for (BrightnessFeature feature : features) {
+                feature.writeCached(lastValue);
+                events++;
+            }
+            if (_threads != null) {
+                peak = Math.max(peak, _threads.getThreadCount());
+            }
+            Thread.sleep(intervalMs);
+        }
+        return peak;
+    }
+
+    private int totalWrites() {
+        int writes = 0;
+        for (SimulatedGattCharacteristic characteristic : characteristics) {
+            writes += characteristic.getRequestWrites() + characteristic.getCommandWrites();
+        }
+        return writes;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
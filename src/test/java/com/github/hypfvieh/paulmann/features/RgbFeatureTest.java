@@ -0,0 +1,69 @@
+package com.github.hypfvieh.paulmann.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattCharacteristic;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.features.RgbFeature.ColorChannel;
+
+/**
+ * Tests of {@link RgbFeature}.
+ *
+ * @author David M.
+ */
+public class RgbFeatureTest {
+
+    private SimulatedBluetoothDevice device;
+    private SimulatedGattCharacteristic characteristic;
+    private RgbFeature feature;
+
+    @Before
+    public void before() {
+        device = new SimulatedBluetoothDevice("00:00:00:00:02:01", "Lamp-RGB", 0);
+        SimulatedGattService service = new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+        characteristic = service.addCharacteristic("0000ffb2-0000-1000-8000-00805f9b34fb", new SimulatedLink(0, 0));
+        feature = new RgbFeature(characteristic);
+    }
+
+    @After
+    public void after() {
+        ConnectionManager.getInstance().close(device);
+    }
+
+    @Test
+    public void testSetAllColorsFullRange() {
+        assertTrue(feature.setAllColors((byte) 255, (byte) 128, (byte) 0));
+        assertArrayEquals(new byte[] {(byte) 255, (byte) 128, 0}, characteristic.getValue());
+
+        assertTrue(feature.setAllColors((byte) 0, (byte) 127, (byte) 200));
+        assertArrayEquals(new byte[] {0, 127, (byte) 200}, characteristic.getValue());
+    }
+
+    @Test
+    public void testSetValueKeepsOtherChannels() {
+        assertTrue(feature.setAllColors((byte) 10, (byte) 20, (byte) 30));
+        assertTrue(feature.setValue(ColorChannel.GREEN, (byte) 200));
+        assertArrayEquals(new byte[] {10, (byte) 200, 30}, characteristic.getValue());
+    }
+
+    @Test
+    public void testSetValueWithoutChannel() {
+        assertFalse(feature.setValue(null, (byte) 10));
+    }
+
+    @Test
+    public void testAsyncVariants() {
+        assertTrue(feature.setAllColorsAsync((byte) 255, (byte) 255, (byte) 255).join());
+        assertTrue(feature.setValueAsync(ColorChannel.RED, (byte) 128).join());
+        assertArrayEquals(new byte[] {(byte) 128, (byte) 255, (byte) 255}, characteristic.getValue());
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.hypfvieh.paulmann.features;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattCharacteristic;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+
+/**
+ * Tests of {@link SystemTimeFeature}.
+ *
+ * @author David M.
+ */
+public class SystemTimeFeatureTest {
+
+    private SimulatedBluetoothDevice device;
+    private SimulatedGattCharacteristic characteristic;
+
+    @Before
+    public void before() {
+        device = new SimulatedBluetoothDevice("00:00:00:00:24:01", "Lamp-W", 0);
+        SimulatedGattService service = new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+        characteristic = service.addCharacteristic("0000ffb3-0000-1000-8000-00805f9b34fb", new SimulatedLink(0, 0));
+    }
+
+    @After
+    public void after() {
+        ConnectionManager.getInstance().close(device);
+    }
+
+    @Test
+    public void testDelayToNextSecond() {
+        assertEquals(0, SystemTimeFeature.delayToNextSecond(10_000, 0));
+        assertEquals(999, SystemTimeFeature.delayToNextSecond(10_001, 0));
+        assertEquals(700, SystemTimeFeature.delayToNextSecond(10_300, 0));
+        // the value arrives 50 ms later, so it has to be sent 50 ms earlier
+        assertEquals(650, SystemTimeFeature.delayToNextSecond(10_300, 50));
+        assertEquals(0, SystemTimeFeature.delayToNextSecond(10_950, 50));
+        assertEquals(800, SystemTimeFeature.delayToNextSecond(10_950, 250));
+    }
+
+    @Test
+    public void testArrivalSecond() {
+        assertEquals(10_000, SystemTimeFeature.toArrivalSecond(10_000, 0));
+        assertEquals(10_000, SystemTimeFeature.toArrivalSecond(9_990, 0)); // send a bit early
+        assertEquals(10_000, SystemTimeFeature.toArrivalSecond(10_020, 0)); // delayed by the command queue
+        assertEquals(10_000, SystemTimeFeature.toArrivalSecond(9_950, 50));
+        assertEquals(11_000, SystemTimeFeature.toArrivalSecond(10_300, 250));
+    }
+
+    @Test
+    public void testSyncDateTime() {
+        SystemTimeFeature feature = new SystemTimeFeature(characteristic);
+
+        assertTrue(feature.syncDateTime());
+        long now = System.currentTimeMillis();
+
+        byte[] payload = characteristic.getValue();
+        assertNotNull(payload);
+        assertEquals(7, payload.length);
+        Calendar cal = new GregorianCalendar((payload[0] & 0xFF) + payload[1] * 256, payload[2], payload[3],
+                payload[4], payload[5], payload[6]);
+        assertTrue("Device time " + cal.getTime() + " differs from " + now, Math.abs(cal.getTimeInMillis() - now) <= 1000);
+    }
+}
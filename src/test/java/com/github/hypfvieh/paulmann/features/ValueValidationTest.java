@@ -0,0 +1,112 @@
+package com.github.hypfvieh.paulmann.features;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattCharacteristic;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+
+/**
+ * Tests the payloads written by byte and int based features for values inside and outside of the allowed steps.
+ * <br>
+ * Values which are a multiple of the step size are written unchanged. Values between two steps are rounded
+ * down to the lower step, they were written as value / step size before (e.g. brightness 23 as 4).
+ *
+ * @author David M.
+ */
+public class ValueValidationTest {
+
+    private SimulatedBluetoothDevice device;
+    private SimulatedGattCharacteristic brightnessChar;
+    private SimulatedGattCharacteristic colorTempChar;
+
+    @Before
+    public void before() {
+        device = new SimulatedBluetoothDevice("00:00:00:00:21:01", "Lamp-WC", 0);
+        SimulatedGattService service = new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+        brightnessChar = service.addCharacteristic("0000ffb8-0000-1000-8000-00805f9b34fb", new SimulatedLink(0, 0));
+        colorTempChar = service.addCharacteristic("0000ffb6-0000-1000-8000-00805f9b34fb", new SimulatedLink(0, 0));
+    }
+
+    @After
+    public void after() {
+        ConnectionManager.getInstance().close(device);
+    }
+
+    @Test
+    public void testBrightnessStepPayloads() {
+        BrightnessFeature feature = new BrightnessFeature(brightnessChar);
+
+        assertTrue(feature.writeByte((byte) 0));
+        assertArrayEquals(new byte[] {0}, brightnessChar.getValue());
+        assertTrue(feature.writeByte((byte) 20));
+        assertArrayEquals(new byte[] {20}, brightnessChar.getValue());
+        assertTrue(feature.writeByte((byte) 100));
+        assertArrayEquals(new byte[] {100}, brightnessChar.getValue());
+    }
+
+    @Test
+    public void testBrightnessBetweenSteps() {
+        BrightnessFeature feature = new BrightnessFeature(brightnessChar);
+
+        // was written as 4 (23 / 5)
+        assertTrue(feature.writeByte((byte) 23));
+        assertArrayEquals(new byte[] {20}, brightnessChar.getValue());
+        // was written as 19 (99 / 5)
+        assertTrue(feature.writeByte((byte) 99));
+        assertArrayEquals(new byte[] {95}, brightnessChar.getValue());
+    }
+
+    @Test
+    public void testBrightnessOutOfRange() {
+        BrightnessFeature feature = new BrightnessFeature(brightnessChar);
+
+        assertTrue(feature.writeByte((byte) 120));
+        assertArrayEquals(new byte[] {100}, brightnessChar.getValue());
+        assertTrue(feature.writeByte((byte) -5));
+        assertArrayEquals(new byte[] {0}, brightnessChar.getValue());
+    }
+
+    @Test
+    public void testColorTemperatureStepPayloads() {
+        ColorTemperatureWCLampFeature feature = new ColorTemperatureWCLampFeature(colorTempChar);
+
+        assertTrue(feature.writeByte(2700));
+        assertArrayEquals(BigInteger.valueOf(2700).toByteArray(), colorTempChar.getValue());
+        assertTrue(feature.writeByte(6500));
+        assertArrayEquals(BigInteger.valueOf(6500).toByteArray(), colorTempChar.getValue());
+    }
+
+    @Test
+    public void testColorTemperatureBetweenSteps() {
+        ColorTemperatureWCLampFeature feature = new ColorTemperatureWCLampFeature(colorTempChar);
+
+        // was written as 54 (2725 / 50, cast to byte)
+        assertTrue(feature.writeByte(2725));
+        assertArrayEquals(BigInteger.valueOf(2700).toByteArray(), colorTempChar.getValue());
+        assertTrue(feature.writeByte(4049));
+        assertArrayEquals(BigInteger.valueOf(4000).toByteArray(), colorTempChar.getValue());
+        assertTrue(feature.writeByte(9000));
+        assertArrayEquals(BigInteger.valueOf(6500).toByteArray(), colorTempChar.getValue());
+    }
+
+    @Test
+    public void testToValidValue() {
+        assertEquals(20, AbstractFeature.toValidValue(20, 0, 100, 5));
+        assertEquals(20, AbstractFeature.toValidValue(23, 0, 100, 5));
+        assertEquals(100, AbstractFeature.toValidValue(101, 0, 100, 5));
+        assertEquals(0, AbstractFeature.toValidValue(-1, 0, 100, 5));
+        assertEquals(2700, AbstractFeature.toValidValue(2725, 2700, 6500, 50));
+        assertEquals(2700, AbstractFeature.toValidValue(1000, 2700, 6500, 50));
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.hypfvieh.paulmann.features;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.hypfvieh.paulmann.Benchmark;
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattCharacteristic;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+
+/**
+ * Compares the frames per second of acknowledged writes ({@link WriteMode#REQUEST}) and
+ * unacknowledged writes ({@link WriteMode#COMMAND}) on a simulated link.
+ * <br>
+ * The default tests check that the selected write type reaches the characteristic,
+ * the frame rates are only measured by the {@link Benchmark} tests.
+ *
+ * @author David M.
+ */
+public class WriteModeBenchmarkTest {
+    private static final int FRAMES = 30;
+    /** write request waits for the confirmation, write command only until bluez accepted the value */
+    private static final SimulatedLink LINK = new SimulatedLink(30, 2);
+    private static final SimulatedLink FAST_LINK = new SimulatedLink(0, 0);
+
+    private static final String RGB_UUID = "0000ffb2-0000-1000-8000-00805f9b34fb";
+    private static final String BRIGHTNESS_UUID = "0000ffb8-0000-1000-8000-00805f9b34fb";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final List<SimulatedBluetoothDevice> devices = new ArrayList<>();
+
+    @After
+    public void after() {
+        for (SimulatedBluetoothDevice device : devices) {
+            ConnectionManager.getInstance().close(device);
+        }
+    }
+
+    @Test
+    public void testRgbWriteType() {
+        SimulatedGattCharacteristic requestChar = createCharacteristic("00:00:00:00:06:05", RGB_UUID, FAST_LINK);
+        SimulatedGattCharacteristic commandChar = createCharacteristic("00:00:00:00:06:06", RGB_UUID, FAST_LINK);
+
+        RgbFeature commandFeature = new RgbFeature(commandChar);
+        commandFeature.setWriteMode(WriteMode.COMMAND);
+        streamColors(new RgbFeature(requestChar));
+        streamColors(commandFeature);
+
+        assertEquals(FRAMES + 1, requestChar.getRequestWrites());
+        assertEquals(0, requestChar.getCommandWrites());
+        assertEquals(FRAMES + 1, commandChar.getCommandWrites());
+        assertEquals(0, commandChar.getRequestWrites());
+    }
+
+    @Test
+    public void testBrightnessWriteType() {
+        SimulatedGattCharacteristic requestChar = createCharacteristic("00:00:00:00:06:07", BRIGHTNESS_UUID, FAST_LINK);
+        SimulatedGattCharacteristic commandChar = createCharacteristic("00:00:00:00:06:08", BRIGHTNESS_UUID, FAST_LINK);
+
+        BrightnessFeature commandFeature = new BrightnessFeature(commandChar);
+        commandFeature.setWriteMode(WriteMode.COMMAND);
+        dim(new BrightnessFeature(requestChar));
+        dim(commandFeature);
+
+        assertEquals(FRAMES + 1, requestChar.getRequestWrites());
+        assertEquals(0, requestChar.getCommandWrites());
+        assertEquals(FRAMES + 1, commandChar.getCommandWrites());
+        assertEquals(0, commandChar.getRequestWrites());
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void testRgbFramesPerSecond() {
+        RgbFeature requestFeature = new RgbFeature(createCharacteristic("00:00:00:00:06:01", RGB_UUID, LINK));
+        RgbFeature commandFeature = new RgbFeature(createCharacteristic("00:00:00:00:06:02", RGB_UUID, LINK));
+        commandFeature.setWriteMode(WriteMode.COMMAND);
+
+        double requestFps = streamColors(requestFeature);
+        double commandFps = streamColors(commandFeature);
+        logger.info("RGB animation: REQUEST {} frames/sec, COMMAND {} frames/sec", Math.round(requestFps), Math.round(commandFps));
+
+        assertTrue("COMMAND should be at least 3 times faster", commandFps > requestFps * 3);
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void testBrightnessFramesPerSecond() {
+        BrightnessFeature requestFeature = new BrightnessFeature(createCharacteristic("00:00:00:00:06:03", BRIGHTNESS_UUID, LINK));
+        BrightnessFeature commandFeature = new BrightnessFeature(createCharacteristic("00:00:00:00:06:04", BRIGHTNESS_UUID, LINK));
+        commandFeature.setWriteMode(WriteMode.COMMAND);
+
+        double requestFps = dim(requestFeature);
+        double commandFps = dim(commandFeature);
+        logger.info("Dimming: REQUEST {} frames/sec, COMMAND {} frames/sec", Math.round(requestFps), Math.round(commandFps));
+
+        assertTrue("COMMAND should be at least 3 times faster", commandFps > requestFps * 3);
+    }
+
+    private double streamColors(RgbFeature _feature) {
+        _feature.writeValue(new byte[] {0, 0, 0}); // connect outside of the measurement
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            byte value = (byte) (i * 8);
+            assertTrue(_feature.writeValue(new byte[] {value, 0, (byte) ~value}));
+        }
+        return toFps(System.nanoTime() - start);
+    }
+
+    private double dim(BrightnessFeature _feature) {
+        _feature.writeByte(BrightnessFeature.MIN_VALUE);
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            assertTrue(_feature.writeByte((byte) (i % 21 * BrightnessFeature.STEP_SIZE)));
+        }
+        return toFps(System.nanoTime() - start);
+    }
+
+    private SimulatedGattCharacteristic createCharacteristic(String _address, String _uuid, SimulatedLink _link) {
+        SimulatedBluetoothDevice device = new SimulatedBluetoothDevice(_address, "Lamp-RGB", 0);
+        devices.add(device);
+        SimulatedGattService service = new SimulatedGattService(device, "0000ffb0-0000-1000-8000-00805f9b34fb");
+        return service.addCharacteristic(_uuid, _link);
+    }
+
+    private static double toFps(long _nanos) {
+        return FRAMES / (_nanos / 1_000_000_000d);
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.hypfvieh.paulmann.scenes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.hypfvieh.paulmann.SimulatedBluetoothDevice;
+import com.github.hypfvieh.paulmann.SimulatedGattCharacteristic;
+import com.github.hypfvieh.paulmann.SimulatedGattService;
+import com.github.hypfvieh.paulmann.SimulatedLink;
+import com.github.hypfvieh.paulmann.connection.ConnectionManager;
+import com.github.hypfvieh.paulmann.devices.DeviceTransaction;
+import com.github.hypfvieh.paulmann.devices.LampRGBW;
+import com.github.hypfvieh.paulmann.devices.LampWC;
+import com.github.hypfvieh.paulmann.features.FeatureIdent;
+
+/**
+ * Tests applying a {@link Scene} to simulated devices.
+ *
+ * @author David M.
+ */
+public class SceneTest {
+    private static final String SERVICE_UUID = "0000ffb0-0000-1000-8000-00805f9b34fb";
+    private static final String COLORTEMP_UUID = "0000ffb6-0000-1000-8000-00805f9b34fb";
+    private static final String ON_OFF_UUID = "0000ffb7-0000-1000-8000-00805f9b34fb";
+    private static final String BRIGHTNESS_UUID = "0000ffb8-0000-1000-8000-00805f9b34fb";
+
+    private final List<SimulatedBluetoothDevice> devices = new ArrayList<>();
+
+    @After
+    public void after() {
+        for (SimulatedBluetoothDevice device : devices) {
+            ConnectionManager.getInstance().close(device);
+        }
+    }
+
+    @Test
+    public void testApplyToWcLamp() {
+        SimulatedGattService service = createService("00:00:00:00:21:11", LampWC.DEVICE_ALIAS);
+        SimulatedGattCharacteristic colorTemp = service.addCharacteristic(COLORTEMP_UUID, new SimulatedLink(0, 0));
+        SimulatedGattCharacteristic onOff = service.addCharacteristic(ON_OFF_UUID, new SimulatedLink(0, 0));
+        SimulatedGattCharacteristic brightness = service.addCharacteristic(BRIGHTNESS_UUID, new SimulatedLink(0, 0));
+
+        Scene scene = Scene.builder("daylight").power(true).brightness(80).colorTemperature(6500).build();
+        DeviceTransaction.Result result = scene.apply(new LampWC(service));
+
+        assertTrue(result.toString(), result.isSuccessful());
+        assertEquals(3, result.getResults().size());
+        assertArrayEquals(BigInteger.valueOf(6500).toByteArray(), colorTemp.getValue());
+        assertArrayEquals(new byte[] {1}, onOff.getValue());
+        assertArrayEquals(new byte[] {80}, brightness.getValue());
+    }
+
+    @Test
+    public void testWcLampValueIsRoundedToStep() {
+        SimulatedGattService service = createService("00:00:00:00:21:12", LampWC.DEVICE_ALIAS);
+        SimulatedGattCharacteristic colorTemp = service.addCharacteristic(COLORTEMP_UUID, new SimulatedLink(0, 0));
+
+        Scene scene = Scene.builder("warm").colorTemperature(2725).build();
+        assertTrue(scene.apply(new LampWC(service)).isSuccessful());
+
+        assertArrayEquals(BigInteger.valueOf(2700).toByteArray(), colorTemp.getValue());
+    }
+
+    @Test
+    public void testUnsupportedValueIsSkippedOnRgbwLamp() {
+        SimulatedGattService service = createService("00:00:00:00:21:13", LampRGBW.DEVICE_ALIAS);
+        SimulatedGattCharacteristic colorTemp = service.addCharacteristic(COLORTEMP_UUID, new SimulatedLink(0, 0));
+
+        Scene scene = Scene.builder("daylight").colorTemperature(6500).build();
+        assertNull(scene.getPayload(FeatureIdent.PAULMANN_COLORTEMP_RGBW_FEATURE));
+
+        DeviceTransaction.Result result = scene.apply(new LampRGBW(service));
+        assertTrue(result.getResults().isEmpty());
+        assertNull(colorTemp.getValue());
+    }
+
+    @Test
+    public void testApplyToRgbwLamp() {
+        SimulatedGattService service = createService("00:00:00:00:21:14", LampRGBW.DEVICE_ALIAS);
+        SimulatedGattCharacteristic colorTemp = service.addCharacteristic(COLORTEMP_UUID, new SimulatedLink(0, 0));
+
+        Scene scene = Scene.builder("neutral").colorTemperature(4000).build();
+        assertTrue(scene.apply(new LampRGBW(service)).isSuccessful());
+
+        assertArrayEquals(BigInteger.valueOf(4000).toByteArray(), colorTemp.getValue());
+    }
+
+    private SimulatedGattService createService(String _address, String _alias) {
+        SimulatedBluetoothDevice device = new SimulatedBluetoothDevice(_address, _alias, 0);
+        devices.add(device);
+        return new SimulatedGattService(device, SERVICE_UUID);
+    }
+}